@@ -1,8 +1,15 @@
 package tablut;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import static java.lang.Math.*;
 import static tablut.Board.*;
 import static tablut.Piece.*;
+import static tablut.TranspositionTable.*;
+import static tablut.Utils.NANOS_PER_MILLI;
 
 
 /** A Player that automatically generates moves.
@@ -10,12 +17,16 @@ import static tablut.Piece.*;
  */
 class AI extends Player {
 
+    /** The deepest search that findMove will attempt. */
+    private static final int MAX_DEPTH = 64;
     /** A position-score magnitude indicating a win (for white if positive,
      *  black if negative). */
     private static final int WINNING_VALUE = Integer.MAX_VALUE - 20;
     /** A position-score magnitude indicating a forced win in a subsequent
-     *  move.  This differs from WINNING_VALUE to avoid putting off wins. */
-    private static final int WILL_WIN_VALUE = Integer.MAX_VALUE  - 40;
+     *  move.  This differs from WINNING_VALUE to avoid putting off wins:
+     *  the remaining depth, at most MAX_DEPTH, is added to it so that
+     *  sooner wins score higher, and the sum stays below WINNING_VALUE. */
+    private static final int WILL_WIN_VALUE = WINNING_VALUE - MAX_DEPTH - 20;
     /** A magnitude greater than a normal value. */
     private static final int INFTY = Integer.MAX_VALUE;
     /** A magnitude greater than a normal value. */
@@ -37,7 +48,25 @@ class AI extends Player {
 
     /** A new AI playing PIECE under control of CONTROLLER. */
     AI(Piece piece, Controller controller) {
+        this(piece, controller, 0);
+    }
+
+    /** A new AI playing PIECE under control of CONTROLLER, which is helper
+     *  number HELPERID in parallel searches, or the main searcher if
+     *  HELPERID is 0.  Helpers order moves with a little noise, so that
+     *  they explore different parts of the tree first. */
+    private AI(Piece piece, Controller controller, int helperId) {
         super(piece, controller);
+        _helperId = helperId;
+        if (helperId > 0) {
+            Random noise = new Random(helperId);
+            _noise = new int[Move.MAX_INDEX];
+            for (int i = 0; i < _noise.length; i += 1) {
+                _noise[i] = noise.nextInt(HISTORY_NOISE);
+            }
+        } else {
+            _noise = null;
+        }
     }
 
     @Override
@@ -49,11 +78,107 @@ class AI extends Player {
 
     @Override
     String myMove() {
-        Move move = findMove();
+        MoveDecisionEvent event = new MoveDecisionEvent();
+        event.begin();
+        Move move = finishPondering();
+        event.ponderHit = move != null;
+        if (move == null) {
+            move = findMove();
+        }
+        if (event.shouldCommit()) {
+            event.side = myPiece().toName();
+            event.move = move.toString();
+            event.depth = _stats.depth();
+            event.nodes = _stats.nodes();
+            event.commit();
+        }
+        _controller.reportInfo(_stats);
         _controller.reportMove(move);
+        if (_controller.searchOptions().ponder()) {
+            startPondering(move);
+        }
         return move.toString();
     }
 
+    /** Start searching, on another thread, the position expected after I
+     *  make MOVE and my opponent makes the reply that the transposition
+     *  table predicts, if there is such a reply.  The search runs until
+     *  it is stopped, or until it reaches the usual depth or node limit,
+     *  or PONDER_TIME_FACTOR times the usual time limit. */
+    private void startPondering(Move move) {
+        Board board = new Board(board());
+        board.makeMove(move);
+        if (board.winner() != null) {
+            return;
+        }
+        long entry = _controller.transpositionTable().probe(board.hash());
+        Move reply = Move.mv(move(entry));
+        if (entry == 0 || reply == null || !board.isLegal(reply)) {
+            return;
+        }
+        board.makeMove(reply);
+        if (board.winner() != null) {
+            return;
+        }
+        SearchOptions options = _controller.searchOptions();
+        TranspositionTable table = _controller.transpositionTable();
+        long timeBudget = _controller.timeBudget(),
+            nodeBudget = _controller.nodeBudget();
+        int limit = timeBudget == 0 && nodeBudget == 0
+            ? maxDepth(board) : MAX_DEPTH;
+        long deadline = deadline(timeBudget, PONDER_TIME_FACTOR);
+        _ponderKey = board.hash();
+        _ponderMoveCount = board.moveCount();
+        _ponderMove = null;
+        _stopped = false;
+        _ponderer = new Thread(() -> _ponderMove =
+                               search(board, table, options, limit,
+                                      nodeBudget, deadline), "ponder");
+        _ponderer.setDaemon(true);
+        _ponderer.start();
+    }
+
+    /** Stop any search started by startPondering.  If it was searching
+     *  the current position (a ponder hit), first let it run for up to
+     *  the usual time limit (or to its end, if there is no time limit),
+     *  and return the move it chose.  Otherwise, return null. */
+    private Move finishPondering() {
+        if (_ponderer == null) {
+            return null;
+        }
+        boolean hit = board().hash() == _ponderKey
+            && board().moveCount() == _ponderMoveCount;
+        if (hit) {
+            try {
+                _ponderer.join(_controller.timeBudget());
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stopThinking();
+        if (hit && _ponderMove != null) {
+            _controller.logComment("ponder hit: depth %d, %d nodes",
+                                   _completed, _nodes);
+            return _ponderMove;
+        }
+        return null;
+    }
+
+    /** Stop any search started by startPondering and wait for it to
+     *  end. */
+    @Override
+    void stopThinking() {
+        if (_ponderer != null) {
+            stop();
+            try {
+                _ponderer.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            _ponderer = null;
+        }
+    }
+
     @Override
     boolean isManual() {
         return false;
@@ -61,19 +186,269 @@ class AI extends Player {
 
 
     /** Return a move for me from the current position, assuming there
-     *  is a move. */
+     *  is a move.  With more than one thread allowed by the search
+     *  options, helpers search copies of the position at the same time,
+     *  sharing the transposition table with me, until my own search
+     *  finishes (lazy SMP).  Only my result is used; the helpers
+     *  contribute through the entries they leave in the table. */
     private Move findMove() {
-        Board b = new Board(board());
-        _lastFoundMove = null;
+        SearchOptions options = _controller.searchOptions();
+        TranspositionTable table = _controller.transpositionTable();
+        long timeBudget = _controller.timeBudget(),
+            nodeBudget = _controller.nodeBudget();
+        int limit = timeBudget == 0 && nodeBudget == 0
+            ? maxDepth(board()) : MAX_DEPTH;
+        long deadline = deadline(timeBudget, 1);
+        int numHelpers = options.threads() - 1;
+        if (_helpers.length != numHelpers) {
+            _helpers = new AI[numHelpers];
+            for (int k = 0; k < numHelpers; k += 1) {
+                _helpers[k] = new AI(myPiece(), _controller, k + 1);
+            }
+        }
+        Thread[] threads = new Thread[numHelpers];
+        for (int k = 0; k < numHelpers; k += 1) {
+            AI helper = _helpers[k];
+            Board copy = board().snapshot();
+            helper._stopped = false;
+            threads[k] = new Thread(() -> helper.search(copy, table, options,
+                                                        limit, 0, deadline),
+                                    "search-helper-" + (k + 1));
+            threads[k].setDaemon(true);
+            threads[k].start();
+        }
+        _stopped = false;
+        Move best = search(board().snapshot(), table, options, limit,
+                           nodeBudget, deadline);
+        long helperNodes = 0;
+        for (int k = 0; k < numHelpers; k += 1) {
+            _helpers[k].stop();
+            try {
+                threads[k].join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            helperNodes += _helpers[k]._nodes;
+        }
+        _controller.logComment("depth %d, %d nodes (%d quiescent), "
+                               + "%d helper nodes, "
+                               + "table: %d probes, %.1f%% hits, "
+                               + "%d cutoffs, %.1f%% first, "
+                               + "%d null-move cutoffs, %d reductions, "
+                               + "%d futile, %d razored, %d probcuts",
+                               _completed, _nodes, _qnodes, helperNodes,
+                               _probes, _probes == 0 ? 0.0
+                               : 100.0 * _hits / _probes,
+                               _cutoffs, _cutoffs == 0 ? 0.0
+                               : 100.0 * _firstCutoffs / _cutoffs,
+                               _nullCutoffs, _reductions, _futilityPrunes,
+                               _razorCuts, _probCuts);
+        return best;
+    }
+
+    /** Search BOARD, a position in which it is my turn, to depths 1, 2,
+     *  ... in turn, until reaching LIMIT, searching NODEBUDGET positions
+     *  (if not 0), reaching System.nanoTime() value DEADLINE, or being
+     *  stopped.  Use TABLE as the transposition table and OPTIONS to
+     *  select techniques.  Return the move chosen by the last depth
+     *  completed, and record the statistics of the search in _stats.  A
+     *  helper starts at a depth that depends on its number, so that
+     *  helpers are spread over depths. */
+    private Move search(Board board, TranspositionTable table,
+                        SearchOptions options, int limit, long nodeBudget,
+                        long deadline) {
+        long start = System.nanoTime();
         int sense = 0;
         if (myPiece() == BLACK) {
             sense = -1;
         } else if (myPiece() == WHITE) {
             sense = 1;
         }
-        maxDepth = maxDepth(b);
-        findMove(b, maxDepth, true, sense, NEG_INFTY, INFTY);
-        return _lastFoundMove;
+        prepare(board, table, options, limit, nodeBudget, deadline);
+        Move best = null;
+        int value = 0;
+        _completed = 0;
+        for (int depth = 1 + _helperId % 2; depth <= limit; depth += 1) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            long nodes0 = _nodes, qnodes0 = _qnodes;
+            maxDepth = depth;
+            _pvMove = best;
+            value = searchRoot(board, depth, sense, value);
+            if (event.shouldCommit()) {
+                event.depth = depth;
+                event.nodes = _nodes - nodes0;
+                event.qnodes = _qnodes - qnodes0;
+                event.value = value;
+                event.bestMove = String.valueOf(_lastFoundMove);
+                event.aborted = _aborted;
+                event.helper = _helperId;
+                event.commit();
+            }
+            if (_aborted) {
+                break;
+            }
+            best = _lastFoundMove;
+            _completed = depth;
+            if (abs(value) >= WILL_WIN_VALUE) {
+                break;
+            }
+        }
+        table.count(_probes, _hits);
+        _stats = new SearchStats(_completed, _selDepth, _nodes, _qnodes,
+                                 _cutoffs, _firstCutoffs, _probes, _hits,
+                                 System.nanoTime() - start,
+                                 principalVariation(board, best));
+        return best;
+    }
+
+    /** Prepare to search BOARD, to depths up to LIMIT, using TABLE and
+     *  OPTIONS, and stopping after NODEBUDGET positions (if not 0) or at
+     *  System.nanoTime() value DEADLINE. */
+    private void prepare(Board board, TranspositionTable table,
+                         SearchOptions options, int limit, long nodeBudget,
+                         long deadline) {
+        if (_moves.length <= limit) {
+            _moves = new int[limit + 1][MAX_MOVES];
+            _order = new int[limit + 1][MAX_MOVES];
+            _killers = new int[limit + 1][2];
+        }
+        for (int[] killers : _killers) {
+            Arrays.fill(killers, 0);
+        }
+        for (int[] history : _history) {
+            for (int i = 0; i < history.length; i += 1) {
+                history[i] /= 2;
+            }
+        }
+        _table = table;
+        _options = options;
+        _nodeBudget = nodeBudget;
+        _deadline = deadline;
+        _cutoffs = _firstCutoffs = _probes = _hits = 0;
+        _nodes = _qnodes = _nullCutoffs = _reductions = 0;
+        _futilityPrunes = _razorCuts = _probCuts = 0;
+        _afterNull = _aborted = false;
+        _rootMoveCount = board.moveCount();
+        _nullMoves = 0;
+        _selDepth = 0;
+        _lastFoundMove = null;
+    }
+
+    /** Return the principal variation in BOARD starting with BEST (which
+     *  may be null): BEST followed by the best moves recorded in the
+     *  transposition table for the positions that follow, for as long as
+     *  they are legal, up to the depth of the last completed iteration.
+     *  BOARD is unchanged on return. */
+    private List<Move> principalVariation(Board board, Move best) {
+        ArrayList<Move> pv = new ArrayList<>();
+        Move mv = best;
+        while (mv != null && pv.size() < max(_completed, 1)
+               && board.winner() == null && board.isLegal(mv)) {
+            board.makeMove(mv);
+            pv.add(mv);
+            long entry = _table.probe(board.hash());
+            mv = entry == 0 ? null : Move.mv(move(entry));
+        }
+        for (int i = 0; i < pv.size(); i += 1) {
+            board.undo();
+        }
+        return pv;
+    }
+
+    /** Return the statistics of my last search to finish, or null if
+     *  there has been none. */
+    SearchStats searchStats() {
+        return _stats;
+    }
+
+    /** Return my move in BOARD, a position in which it is my turn, found
+     *  by searching to DEPTH using TABLE and OPTIONS, with no time or node
+     *  limit, as for benchmarks, which need the same work from every
+     *  run.  Does not use my controller. */
+    Move findMove(Board board, int depth, TranspositionTable table,
+                  SearchOptions options) {
+        _stopped = false;
+        return search(board, table, options, depth, 0, Long.MAX_VALUE);
+    }
+
+    /** Return the value of BOARD, a position in which it is my turn, as
+     *  found by a search to DEPTH with a full window using TABLE and
+     *  OPTIONS, with no time or node limit, as for comparing the
+     *  techniques OPTIONS selects.  Does not use my controller. */
+    int searchValue(Board board, int depth, TranspositionTable table,
+                    SearchOptions options) {
+        _stopped = false;
+        prepare(board, table, options, depth, 0, Long.MAX_VALUE);
+        maxDepth = depth;
+        return findMove(board, depth, false, myPiece() == WHITE ? 1 : -1,
+                        NEG_INFTY, INFTY);
+    }
+
+    /** Return the number of positions searched by my last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the System.nanoTime() value FACTOR times MILLIS
+     *  milliseconds from now, or Long.MAX_VALUE if MILLIS is 0 (no limit)
+     *  or the result would overflow. */
+    private static long deadline(long millis, long factor) {
+        if (millis == 0) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Math.addExact(System.nanoTime(),
+                                 Math.multiplyExact(millis,
+                                                    factor * NANOS_PER_MILLI));
+        } catch (ArithmeticException excp) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /** Make my current search (if I am a helper) stop soon. */
+    private void stop() {
+        _stopped = true;
+    }
+
+    /** Search BOARD to DEPTH as for findMove(BOARD, DEPTH, true, SENSE,
+     *  ...), and return its value.  For DEPTH > 1, first tries a window of
+     *  ASPIRATION_PIECES black pieces (as weighted by BOARD's weights) on
+     *  either side of GUESS, the value found by the previous iteration,
+     *  and searches again with that side of the window opened if the value
+     *  falls outside it. */
+    private int searchRoot(Board board, int depth, int sense, int guess) {
+        int alpha = NEG_INFTY, beta = INFTY;
+        if (depth > 1) {
+            int aspiration =
+                max(ASPIRATION_PIECES * abs(board.weights().black()), 1);
+            alpha = guess - aspiration;
+            beta = guess + aspiration;
+        }
+        while (true) {
+            int value = findMove(board, depth, true, sense, alpha, beta);
+            if (_aborted) {
+                return value;
+            } else if (value <= alpha && alpha != NEG_INFTY) {
+                alpha = NEG_INFTY;
+            } else if (value >= beta && beta != INFTY) {
+                beta = INFTY;
+            } else {
+                return value;
+            }
+        }
+    }
+
+    /** Return true iff the current search has run out of time or nodes,
+     *  recording that fact in _aborted.  The first iteration is always
+     *  allowed to finish, so that there is a move to make. */
+    private boolean outOfBudget() {
+        if (!_aborted && maxDepth > 1) {
+            _aborted = (_nodeBudget > 0 && _nodes >= _nodeBudget)
+                || ((_nodes & CLOCK_MASK) == 0
+                    && (_stopped || System.nanoTime() >= _deadline));
+        }
+        return _aborted;
     }
 
     /** The move found by the last call to one of the ...FindMove methods
@@ -81,6 +456,112 @@ class AI extends Player {
     private Move _lastFoundMove;
     /** The maximum depth. */
     private int maxDepth;
+    /** _moves[d] holds the indices of the moves being searched at remaining
+     *  depth d, so that the search allocates no move lists. */
+    private int[][] _moves = new int[0][];
+    /** The transposition table used by the current search. */
+    private TranspositionTable _table;
+    /** The best move from the previous iteration, which is searched first
+     *  at the root, or null. */
+    private Move _pvMove;
+    /** _order[d] holds the ordering scores of the moves in _moves[d]. */
+    private int[][] _order = new int[0][];
+    /** _killers[p] holds the indices of the two most recent moves to cause
+     *  a cutoff at ply p of the current search. */
+    private int[][] _killers = new int[0][];
+    /** _history[s][m] measures how often the move with index m by the side
+     *  with ordinal s has caused cutoffs, weighted by remaining depth. */
+    private final int[][] _history =
+        new int[Piece.values().length][Move.MAX_INDEX];
+    /** Cutoff counts for the current search: all cutoffs, and those caused
+     *  by the first move tried. */
+    private long _cutoffs, _firstCutoffs;
+    /** _qmoves[q] holds the moves being searched q plies into the
+     *  quiescence search.  Grows as needed. */
+    private int[][] _qmoves = new int[0][];
+    /** The number of positions searched in the current move. */
+    private long _nodes;
+    /** The number of those positions that were in quiescence searches. */
+    private long _qnodes;
+    /** Counts of null-move cutoffs and of reduced searches for the current
+     *  move. */
+    private long _nullCutoffs, _reductions;
+    /** Counts of moves skipped by futility pruning, and of nodes cut by
+     *  razoring and by ProbCut, for the current move. */
+    private long _futilityPrunes, _razorCuts, _probCuts;
+    /** True iff the next call to findMove follows a null move, and so may
+     *  not make one itself. */
+    private boolean _afterNull;
+    /** The search options in effect for the current move. */
+    private SearchOptions _options;
+    /** The number of positions allowed for the current move, or 0 if
+     *  unlimited. */
+    private long _nodeBudget;
+    /** The System.nanoTime() value at which the current search stops. */
+    private long _deadline;
+    /** True iff the current iteration ran out of budget, in which case
+     *  its results are discarded. */
+    private boolean _aborted;
+    /** Set from another thread to stop my current search. */
+    private volatile boolean _stopped;
+    /** The depth of the last iteration of my last search to finish. */
+    private int _completed;
+    /** The moveCount() of the root position of my current search. */
+    private int _rootMoveCount;
+    /** The number of null moves on the path from the root to the
+     *  position being searched, which count as plies. */
+    private int _nullMoves;
+    /** The greatest number of plies from the root reached by my current
+     *  search. */
+    private int _selDepth;
+    /** The statistics of my last search to finish, or null. */
+    private SearchStats _stats;
+    /** Counts of transposition table probes and hits in my current
+     *  search, kept here rather than in the shared table. */
+    private long _probes, _hits;
+    /** 0 if I am a main searcher, or else my number as a helper. */
+    private final int _helperId;
+    /** Random additions to history scores, or null for a main searcher. */
+    private final int[] _noise;
+    /** The helpers used by my parallel searches. */
+    private AI[] _helpers = new AI[0];
+    /** The thread searching ahead on my opponent's time, or null. */
+    private Thread _ponderer;
+    /** The hash and move count of the position _ponderer is searching. */
+    private long _ponderKey, _ponderMoveCount;
+    /** The move chosen by _ponderer, valid once it has finished. */
+    private Move _ponderMove;
+
+    /** The clock is read only at node counts with none of these bits
+     *  set. */
+    private static final int CLOCK_MASK = (1 << 10) - 1;
+    /** Ordering scores for the first move and the killer moves, which
+     *  exceed any history score. */
+    private static final int FIRST_ORDER = Integer.MAX_VALUE,
+        KILLER_ORDER = FIRST_ORDER - 1;
+    /** The range of the noise added to helpers' history scores. */
+    private static final int HISTORY_NOISE = 16;
+    /** The largest history score. */
+    private static final int MAX_HISTORY = KILLER_ORDER - 2 - HISTORY_NOISE;
+    /** The half-width of the root window around the previous iteration's
+     *  value, in black pieces. */
+    private static final int ASPIRATION_PIECES = 2;
+    /** The least remaining depth at which to try a null move. */
+    private static final int NULL_MOVE_DEPTH = 3;
+    /** The least remaining depth at which to reduce late moves. */
+    private static final int LMR_DEPTH = 3;
+    /** The number of moves at a node that are never reduced. */
+    private static final int LMR_MOVES = 4;
+    /** The greatest remaining depth at which futility pruning and
+     *  razoring apply. */
+    private static final int FRONTIER_DEPTH = 2;
+    /** The least remaining depth at which to try ProbCut. */
+    private static final int PROBCUT_DEPTH = 5;
+    /** The depth by which ProbCut's shallow search is reduced. */
+    private static final int PROBCUT_REDUCTION = 4;
+    /** Limits pondering to this many times the time budget for a move,
+     *  in case the opponent never replies. */
+    private static final long PONDER_TIME_FACTOR = 10;
 
     /** Helper function that returns the score of a board.
      * @param board is the given board
@@ -109,54 +590,409 @@ class AI extends Player {
      *  of the board value and does not set _lastMoveFound. */
     private int findMove(Board board, int depth, boolean saveMove,
                          int sense, int alpha, int beta) {
-        if (depth == 0 || board.winner() != null) {
+        boolean afterNull = _afterNull;
+        _afterNull = false;
+        _nodes += 1;
+        _selDepth = max(_selDepth, board.moveCount() - _rootMoveCount);
+        if (outOfBudget()) {
+            return 0;
+        }
+        if (board.winner() != null) {
             return simpleScore(board, depth);
+        } else if (depth == 0) {
+            return quiesce(board, sense, alpha, beta, 0);
+        }
+        long key = board.hash();
+        long entry = _table.probe(key);
+        _probes += 1;
+        if (entry != 0) {
+            _hits += 1;
+        }
+        if (entry != 0 && !saveMove && depth(entry) >= depth) {
+            int score = score(entry);
+            switch (bound(entry)) {
+            case EXACT:
+                return score;
+            case LOWER:
+                alpha = max(alpha, score);
+                break;
+            default:
+                beta = min(beta, score);
+                break;
+            }
+            if (beta <= alpha) {
+                return score;
+            }
+        }
+        int eval = staticScore(board);
+        if (!saveMove && depth <= FRONTIER_DEPTH && _options.razoring()) {
+            int margin = _options.razorMargin() * depth;
+            int value = 0;
+            boolean cut = false;
+            if (sense == 1 && eval + margin <= alpha) {
+                value = quiesce(board, 1, alpha, alpha + 1, 0);
+                cut = value <= alpha;
+            } else if (sense == -1 && eval - margin >= beta) {
+                value = quiesce(board, -1, beta - 1, beta, 0);
+                cut = value >= beta;
+            }
+            if (_aborted) {
+                return 0;
+            } else if (cut) {
+                _razorCuts += 1;
+                return value;
+            }
+        }
+        long probCutBound = sense == 1
+            ? (long) beta + _options.probCutMargin()
+            : (long) alpha - _options.probCutMargin();
+        if (!saveMove && depth >= PROBCUT_DEPTH && _options.probCut()
+            && abs(probCutBound) < WILL_WIN_VALUE / 2) {
+            int bound = (int) probCutBound;
+            int value = findMove(board, depth - PROBCUT_REDUCTION, false,
+                                 sense, sense == 1 ? bound - 1 : bound,
+                                 sense == 1 ? bound : bound + 1);
+            if (_aborted) {
+                return 0;
+            } else if (sense == 1 ? value >= bound : value <= bound) {
+                _probCuts += 1;
+                return value;
+            }
         }
+        if (!saveMove && !afterNull && depth >= NULL_MOVE_DEPTH
+            && _options.nullMove()) {
+            int reduction = depth > 2 * NULL_MOVE_DEPTH ? 3 : 2;
+            board.makeNullMove();
+            _nullMoves += 1;
+            _afterNull = true;
+            int value;
+            if (sense == 1) {
+                value = findMove(board, max(depth - 1 - reduction, 0), false,
+                                 -1, beta - 1, beta);
+            } else {
+                value = findMove(board, max(depth - 1 - reduction, 0), false,
+                                 1, alpha, alpha + 1);
+            }
+            board.undoNullMove();
+            _nullMoves -= 1;
+            if (_aborted) {
+                return 0;
+            } else if (sense == 1 ? value >= beta : value <= alpha) {
+                _nullCutoffs += 1;
+                return value;
+            }
+        }
+        final int alpha0 = alpha, beta0 = beta;
+        final int ply = board.moveCount() - _rootMoveCount + _nullMoves;
+        int futilityMargin = _options.futilityMargin() * depth;
+        boolean futile = !saveMove && depth <= FRONTIER_DEPTH
+            && _options.futility()
+            && (sense == 1 ? eval + futilityMargin <= alpha
+                : eval - futilityMargin >= beta);
         if (sense == 1) {
             Move bestSoFarMove = null;
             int bestSoFarInt = NEG_INFTY;
-            for (Move mv : board.legalMoves(WHITE)) {
+            int[] moves = _moves[depth];
+            int[] order = _order[depth];
+            int n = board.legalMoves(WHITE, moves);
+            scoreMoves(saveMove ? _pvMove : Move.mv(move(entry)), WHITE,
+                       ply, moves, order, n);
+            int unpruned = n;
+            if (futile) {
+                n = pruneQuietMoves(board, WHITE, moves, order, n);
+            }
+            for (int i = 0; i < n; i += 1) {
+                Move mv = Move.mv(nextMove(moves, order, i, n));
+                int pieces = pieceCount(board);
                 board.makeMove(mv);
-                int moveVal = findMove(board, depth - 1,
-                        false, -1, alpha, beta);
+                int moveVal;
+                if (i == 0) {
+                    moveVal = findMove(board, depth - 1, false, -1,
+                                       alpha, beta);
+                } else {
+                    int reduction =
+                        reduction(board, depth, i, order[i], pieces);
+                    moveVal = findMove(board, depth - 1 - reduction, false,
+                                       -1, alpha, alpha + 1);
+                    if (reduction > 0 && moveVal > alpha && !_aborted) {
+                        moveVal = findMove(board, depth - 1, false, -1,
+                                           alpha, alpha + 1);
+                    }
+                    if (moveVal > alpha && moveVal < beta && !_aborted) {
+                        moveVal = findMove(board, depth - 1, false, -1,
+                                           alpha, beta);
+                    }
+                }
                 board.undo();
-                if (moveVal >= bestSoFarInt) {
+                if (_aborted) {
+                    return 0;
+                }
+                if (bestSoFarMove == null || moveVal > bestSoFarInt) {
                     bestSoFarMove = mv;
                     bestSoFarInt = moveVal;
                     alpha = max(alpha, moveVal);
                     if (beta <= alpha) {
+                        cutoff(WHITE, mv, i, depth, ply);
                         break;
                     }
                 }
             }
+            if (n < unpruned) {
+                bestSoFarInt = max(bestSoFarInt, eval + futilityMargin);
+            }
             if (saveMove) {
                 _lastFoundMove = bestSoFarMove;
             }
+            record(key, depth, bestSoFarInt, bestSoFarMove, alpha0, beta0);
             return bestSoFarInt;
         } else if (sense == -1) {
             Move bestSoFarMove1 = null;
             int bestSoFarInt1 = INFTY;
-            for (Move mv : board.legalMoves(BLACK)) {
+            int[] moves = _moves[depth];
+            int[] order = _order[depth];
+            int n = board.legalMoves(BLACK, moves);
+            scoreMoves(saveMove ? _pvMove : Move.mv(move(entry)), BLACK,
+                       ply, moves, order, n);
+            int unpruned = n;
+            if (futile) {
+                n = pruneQuietMoves(board, BLACK, moves, order, n);
+            }
+            for (int i = 0; i < n; i += 1) {
+                Move mv = Move.mv(nextMove(moves, order, i, n));
+                int pieces = pieceCount(board);
                 board.makeMove(mv);
-                int moveVal = findMove(board, depth - 1, false, 1, alpha, beta);
+                int moveVal;
+                if (i == 0) {
+                    moveVal = findMove(board, depth - 1, false, 1,
+                                       alpha, beta);
+                } else {
+                    int reduction =
+                        reduction(board, depth, i, order[i], pieces);
+                    moveVal = findMove(board, depth - 1 - reduction, false,
+                                       1, beta - 1, beta);
+                    if (reduction > 0 && moveVal < beta && !_aborted) {
+                        moveVal = findMove(board, depth - 1, false, 1,
+                                           beta - 1, beta);
+                    }
+                    if (moveVal > alpha && moveVal < beta && !_aborted) {
+                        moveVal = findMove(board, depth - 1, false, 1,
+                                           alpha, beta);
+                    }
+                }
                 board.undo();
-                if (moveVal <= bestSoFarInt1) {
+                if (_aborted) {
+                    return 0;
+                }
+                if (bestSoFarMove1 == null || moveVal < bestSoFarInt1) {
                     bestSoFarMove1 = mv;
                     bestSoFarInt1 = moveVal;
                     beta = min(beta, moveVal);
                     if (beta <= alpha) {
+                        cutoff(BLACK, mv, i, depth, ply);
                         break;
                     }
                 }
             }
+            if (n < unpruned) {
+                bestSoFarInt1 = min(bestSoFarInt1, eval - futilityMargin);
+            }
             if (saveMove) {
                 _lastFoundMove = bestSoFarMove1;
             }
+            record(key, depth, bestSoFarInt1, bestSoFarMove1, alpha0, beta0);
             return bestSoFarInt1;
         }
         return 0;
     }
 
+    /** Return the value of BOARD, searching only captures and king moves
+     *  to the edge beyond the depth limit, at QDEPTH plies past it.  SENSE,
+     *  ALPHA and BETA are as for findMove.  The side to move may instead
+     *  stand pat on the static score. */
+    private int quiesce(Board board, int sense, int alpha, int beta,
+                        int qdepth) {
+        if (qdepth > 0) {
+            _nodes += 1;
+            _qnodes += 1;
+            _selDepth = max(_selDepth, board.moveCount() - _rootMoveCount);
+            if (outOfBudget()) {
+                return 0;
+            }
+        }
+        if (board.winner() != null) {
+            return simpleScore(board, 0);
+        }
+        int best = staticScore(board);
+        if (sense == 1 ? best >= beta : best <= alpha) {
+            return best;
+        }
+        if (_qmoves.length <= qdepth) {
+            _qmoves = Arrays.copyOf(_qmoves, 2 * qdepth + 2);
+        }
+        if (_qmoves[qdepth] == null) {
+            _qmoves[qdepth] = new int[MAX_MOVES];
+        }
+        int[] moves = _qmoves[qdepth];
+        int n = board.tacticalMoves(sense == 1 ? WHITE : BLACK, moves);
+        for (int i = 0; i < n; i += 1) {
+            if (sense == 1) {
+                alpha = max(alpha, best);
+            } else {
+                beta = min(beta, best);
+            }
+            board.makeMove(Move.mv(moves[i]));
+            int value = quiesce(board, -sense, alpha, beta, qdepth + 1);
+            board.undo();
+            if (_aborted) {
+                return 0;
+            }
+            best = sense == 1 ? max(best, value) : min(best, value);
+            if (sense == 1 ? best >= beta : best <= alpha) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /** Set ORDER[i] to the ordering score of MOVES[i] for the first N
+     *  moves of SIDE, at PLY plies from the root.  FIRST (which may be
+     *  null), the move suggested by the transposition table or the
+     *  previous iteration, comes first, then the killer moves for PLY,
+     *  and then the rest in order of their history scores. */
+    private void scoreMoves(Move first, Piece side, int ply, int[] moves,
+                            int[] order, int n) {
+        int firstIndex = first == null ? -1 : first.index();
+        int[] killers = _killers[ply];
+        int[] history = _history[side.ordinal()];
+        for (int i = 0; i < n; i += 1) {
+            int mv = moves[i];
+            if (mv == firstIndex) {
+                order[i] = FIRST_ORDER;
+            } else if (mv == killers[0]) {
+                order[i] = KILLER_ORDER;
+            } else if (mv == killers[1]) {
+                order[i] = KILLER_ORDER - 1;
+            } else if (_noise == null) {
+                order[i] = history[mv];
+            } else {
+                order[i] = history[mv] + _noise[mv];
+            }
+        }
+    }
+    /** Remove from the first N MOVES of SIDE on BOARD, whose ordering
+     *  scores are in ORDER, the quiet moves other than the one that will
+     *  be searched first, as futility pruning does, and return the number
+     *  of moves left.  Moves are classified without being made, as by
+     *  Board.tacticalMoves. */
+    private int pruneQuietMoves(Board board, Piece side, int[] moves,
+                                int[] order, int n) {
+        int first = 0;
+        for (int j = 1; j < n; j += 1) {
+            if (order[j] > order[first]) {
+                first = j;
+            }
+        }
+        board.markTactical(side);
+        int k = 0;
+        for (int j = 0; j < n; j += 1) {
+            if (j == first || board.isTactical(moves[j])) {
+                moves[k] = moves[j];
+                order[k] = order[j];
+                k += 1;
+            }
+        }
+        _futilityPrunes += n - k;
+        return k;
+    }
+
+    /** Return the move among MOVES[I .. N-1] with the largest ORDER,
+     *  after swapping it and its ORDER into position I. */
+    private static int nextMove(int[] moves, int[] order, int i, int n) {
+        int best = i;
+        for (int j = i + 1; j < n; j += 1) {
+            if (order[j] > order[best]) {
+                best = j;
+            }
+        }
+        int mv = moves[best], score = order[best];
+        moves[best] = moves[i];
+        moves[i] = mv;
+        order[best] = order[i];
+        order[i] = score;
+        return mv;
+    }
+
+    /** Return the number of plies by which to reduce the search of the
+     *  Ith move, with ordering score ORDER, just made on BOARD with DEPTH
+     *  remaining, where PIECES is pieceCount(BOARD) before the move.  Only
+     *  quiet moves that are neither first nor killers, and that come late
+     *  in the ordering, are reduced. */
+    private int reduction(Board board, int depth, int i, int order,
+                          int pieces) {
+        if (!_options.lateMoveReductions() || depth < LMR_DEPTH
+            || i < LMR_MOVES || order >= KILLER_ORDER - 1
+            || !quiet(board, pieces)) {
+            return 0;
+        }
+        _reductions += 1;
+        return 1;
+    }
+
+    /** Return true iff the move just made on BOARD, which had PIECES
+     *  pieces before it, neither captured nor ended the game. */
+    private static boolean quiet(Board board, int pieces) {
+        return pieceCount(board) == pieces && board.winner() == null;
+    }
+
+    /** Return the number of pieces on BOARD, including the king. */
+    private static int pieceCount(Board board) {
+        return board.getNumBlackPieces() + board.getNumWhitePieces();
+    }
+
+    /** Record that MV, the Ith move tried by SIDE with DEPTH remaining
+     *  at PLY plies from the root, caused a cutoff. */
+    private void cutoff(Piece side, Move mv, int i, int depth, int ply) {
+        int[] killers = _killers[ply];
+        if (killers[0] != mv.index()) {
+            killers[1] = killers[0];
+            killers[0] = mv.index();
+        }
+        int[] history = _history[side.ordinal()];
+        history[mv.index()] =
+            min(history[mv.index()] + depth * depth, MAX_HISTORY);
+        _cutoffs += 1;
+        if (i == 0) {
+            _firstCutoffs += 1;
+        }
+    }
+
+    /** Return the number of cutoffs in the last search. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Return the number of cutoffs in the last search caused by the first
+     *  move tried. */
+    long firstMoveCutoffs() {
+        return _firstCutoffs;
+    }
+
+    /** Store VALUE, the result of searching the position whose hash is KEY
+     *  to DEPTH with window ALPHA, BETA, in the transposition table, along
+     *  with BEST, the best move found (or null). */
+    private void record(long key, int depth, int value, Move best,
+                        int alpha, int beta) {
+        int bound;
+        if (value <= alpha) {
+            bound = UPPER;
+        } else if (value >= beta) {
+            bound = LOWER;
+        } else {
+            bound = EXACT;
+        }
+        _table.store(key, depth, bound, value, best == null ? 0 : best.index());
+    }
+
     /** Return a heuristically determined maximum search depth
      *  based on characteristics of BOARD. */
     private static int maxDepth(Board board) {
@@ -166,9 +1002,9 @@ class AI extends Player {
         return 5;
     }
 
-    /** Return a heuristic value for BOARD. */
+    /** Return a heuristic value for BOARD (see Board.score). */
     private int staticScore(Board board) {
-        return 0;
+        return board.score();
     }
 }
 
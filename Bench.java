@@ -0,0 +1,281 @@
+package tablut;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import ucb.util.CommandArgs;
+
+import static tablut.Utils.*;
+
+/** A fixed benchmark of AI searches, for detecting changes in search
+ *  behavior and speed.  Each of a built-in set of positions (taken from
+ *  self-play games) is searched to a fixed depth by a new AI with an
+ *  empty transposition table and one thread.  The total number of
+ *  positions searched is a signature of the search: it is the same on
+ *  every run and every machine, and changes only when something changes
+ *  which positions are searched (move generation or ordering, pruning,
+ *  or evaluation).  The rate is the total over the time spent searching.
+ *
+ *  Run as a program, Bench compares a run against a baseline file,
+ *  consisting of "depth N", "nodes N", and "nps N" entries, and exits
+ *  with code 1 if the signature differs or the rate has dropped by more
+ *  than a tolerance:
+ *
+ *      java tablut.Bench [--tolerance=PERCENT] [--runs=N] BASELINE
+ *      java tablut.Bench --save [--depth=N] [--runs=N] BASELINE
+ *
+ *  The second form records a new baseline.  Of several runs, the fastest
+ *  counts, to reduce noise from warm-up and other load.
+ *  @author Ryan Chen
+ */
+final class Bench {
+
+    /** The names of the built-in positions. */
+    static final String[] NAMES = {
+        "opening", "early", "middle", "crowded", "late"
+    };
+
+    /** The default search depth. */
+    static final int DEFAULT_DEPTH = 6;
+
+    /** Return a new Board in the built-in position named NAME. */
+    static Board position(String name) {
+        for (int i = 0; i < NAMES.length; i += 1) {
+            if (NAMES[i].equals(name)) {
+                Board board = new Board();
+                for (String move : LINES[i].split("\\s+")) {
+                    if (!move.isEmpty()) {
+                        board.makeMove(Move.mv(move));
+                    }
+                }
+                return board;
+            }
+        }
+        throw error("unknown bench position: %s", name);
+    }
+
+    /** Search each built-in position to DEPTH using OPTIONS and WEIGHTS,
+     *  printing the move chosen and the positions searched for each on
+     *  OUT, followed by the totals.  Return the totals. */
+    static Result run(int depth, SearchOptions options, Weights weights,
+                      PrintStream out) {
+        TranspositionTable table = new TranspositionTable(TABLE_MB);
+        long nodes = 0, nanos = 0;
+        for (String name : NAMES) {
+            Board board = position(name);
+            board.setWeights(weights);
+            table.clear();
+            AI ai = new AI(board.turn(), null);
+            long start = System.nanoTime();
+            Move move = ai.findMove(board, depth, table, options);
+            nanos += System.nanoTime() - start;
+            nodes += ai.nodes();
+            out.printf("%s: %s, %d nodes%n", name, move, ai.nodes());
+        }
+        nanos = Math.max(nanos, 1);
+        Result result =
+            new Result(depth, nodes, nodes * NANOS_PER_SEC / nanos);
+        out.printf("bench %d: %d nodes, %d ms, %d nodes/s%n", depth, nodes,
+                   nanos / NANOS_PER_MILLI, result.nodesPerSecond());
+        return result;
+    }
+
+    /** The totals of a run of the benchmark, or of a baseline. */
+    static final class Result {
+        /** The totals of a run to DEPTH that searched NODES positions at
+         *  NODESPERSECOND. */
+        Result(int depth, long nodes, long nodesPerSecond) {
+            _depth = depth;
+            _nodes = nodes;
+            _nodesPerSecond = nodesPerSecond;
+        }
+
+        /** Return the depth searched. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Return the total positions searched: the signature. */
+        long nodes() {
+            return _nodes;
+        }
+
+        /** Return the rate of search. */
+        long nodesPerSecond() {
+            return _nodesPerSecond;
+        }
+
+        /** The depth searched. */
+        private final int _depth;
+        /** The total positions searched. */
+        private final long _nodes;
+        /** The rate of search. */
+        private final long _nodesPerSecond;
+    }
+
+    /** Check or record a baseline as described above, according to
+     *  ARGS. */
+    public static void main(String... args) {
+        CommandArgs options =
+            new CommandArgs("--save --depth={0,1} --runs={0,1} "
+                            + "--tolerance={0,1} --={1}", args);
+        if (!options.ok()) {
+            System.err.println("Usage: java tablut.Bench [--save] "
+                               + "[--depth=N] [--runs=N] "
+                               + "[--tolerance=PERCENT] BASELINE");
+            System.exit(2);
+        }
+        String file = options.getFirst("--");
+        try {
+            int runs = intOption(options, "--runs", DEFAULT_RUNS);
+            if (options.contains("--save")) {
+                Result result =
+                    fastest(intOption(options, "--depth", DEFAULT_DEPTH),
+                            runs);
+                try (PrintStream out = new PrintStream(file)) {
+                    out.printf("# tablut bench baseline%n"
+                               + "depth %d%nnodes %d%nnps %d%n",
+                               result.depth(), result.nodes(),
+                               result.nodesPerSecond());
+                }
+                System.exit(0);
+            }
+            Result baseline = readBaseline(file);
+            Result result = fastest(baseline.depth(), runs);
+            int tolerance =
+                intOption(options, "--tolerance", DEFAULT_TOLERANCE);
+            long slowest =
+                baseline.nodesPerSecond() * (100 - tolerance) / 100;
+            boolean ok = true;
+            if (result.nodes() != baseline.nodes()) {
+                System.out.printf("FAIL: node signature %d, expected %d%n",
+                                  result.nodes(), baseline.nodes());
+                ok = false;
+            }
+            if (result.nodesPerSecond() < slowest) {
+                System.out.printf("FAIL: %d nodes/s, below %d (%d%% under "
+                                  + "the baseline %d)%n",
+                                  result.nodesPerSecond(), slowest,
+                                  tolerance, baseline.nodesPerSecond());
+                ok = false;
+            }
+            if (ok) {
+                System.out.printf("OK: %d nodes, %d nodes/s "
+                                  + "(baseline %d nodes/s)%n",
+                                  result.nodes(), result.nodesPerSecond(),
+                                  baseline.nodesPerSecond());
+            }
+            System.exit(ok ? 0 : 1);
+        } catch (IllegalArgumentException | IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /** Run the benchmark to DEPTH with default options and weights RUNS
+     *  times, and return the result of the fastest run.  Raises an
+     *  IllegalArgumentException if the runs' signatures differ, which
+     *  means that the search is not deterministic. */
+    private static Result fastest(int depth, int runs) {
+        Result best = null;
+        for (int i = 0; i < runs; i += 1) {
+            Result result = run(depth, new SearchOptions(), Weights.DEFAULT,
+                                System.out);
+            if (best != null && result.nodes() != best.nodes()) {
+                throw error("signature varies between runs: %d and %d",
+                            best.nodes(), result.nodes());
+            }
+            if (best == null
+                || result.nodesPerSecond() > best.nodesPerSecond()) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    /** Return the baseline in the file named NAME. */
+    private static Result readBaseline(String name) throws IOException {
+        try (InputStream input = new FileInputStream(name)) {
+            Scanner inp = new Scanner(input);
+            inp.useDelimiter("(\\s|#.*)+");
+            int depth = 0;
+            long nodes = -1, nodesPerSecond = -1;
+            while (inp.hasNext()) {
+                String entry = inp.next();
+                switch (entry) {
+                case "depth":
+                    depth = inp.nextInt();
+                    break;
+                case "nodes":
+                    nodes = inp.nextLong();
+                    break;
+                case "nps":
+                    nodesPerSecond = inp.nextLong();
+                    break;
+                default:
+                    throw error("unknown baseline entry: %s", entry);
+                }
+            }
+            if (depth <= 0 || nodes < 0 || nodesPerSecond < 0) {
+                throw error("baseline needs depth, nodes, and nps");
+            }
+            return new Result(depth, nodes, nodesPerSecond);
+        } catch (InputMismatchException excp) {
+            throw error("bad baseline file: expected a number");
+        } catch (NoSuchElementException excp) {
+            throw error("bad baseline file: truncated");
+        }
+    }
+
+    /** Return the value of the positive integer option NAME in OPTIONS,
+     *  or DEFAULTVALUE if it is absent. */
+    private static int intOption(CommandArgs options, String name,
+                                 int defaultValue) {
+        if (!options.contains(name)) {
+            return defaultValue;
+        }
+        String value = options.getFirst(name);
+        try {
+            int result = Integer.parseInt(value);
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to report the error. */
+        }
+        throw error("%s must be a positive integer: %s", name, value);
+    }
+
+    /** The moves leading to each built-in position from the initial
+     *  position. */
+    private static final String[] LINES = {
+        "",
+        "d1-2 c5-1 f1-2 e7-f a4-b g5-6 e1-d c1-5 f9-8 e6-f",
+        "d1-2 c5-1 f1-2 e7-f a4-b g5-6 e1-d c1-5 d9-8 f5-4 i4-h e5-g "
+        + "f2-g g6-f e8-g e6-d e9-7 d6-7 a6-d g5-e",
+        "d1-2 c5-1 f1-2 e7-f a4-b d5-6 i4-h e6-f d9-7 d6-4 e8-6 g5-6 "
+        + "e9-8 c1-7 e8-7 c7-8 h5-7 f5-4 i5-h e5-f f9-8 f4-g h7-g d4-6 "
+        + "b5-d c8-5 h5-g c5-b d7-5 f6-g",
+        "d1-2 c5-1 f1-2 e7-f a4-b d5-6 i4-h e6-f d9-7 d6-4 e8-6 g5-6 "
+        + "e9-8 c1-7 e8-7 c7-8 h5-7 f5-4 i5-h e5-f f9-8 f4-g h7-g d4-6 "
+        + "b5-d c8-5 h5-g c5-b d7-5 f6-g h4-5 e3-b h5-g b5-c e2-3 c5-6 "
+        + "g7-6 f5-c e1-c c5-4 a5-4 g4-3 f2-4 c6-d e7-c b3-8 c1-2 c4-5 "
+        + "a6-5 b8-c c7-6 c8-7 a5-b c5-4 g5-c c4-d f8-d d4-5 g6-5 d6-g",
+    };
+
+    /** The size of the transposition table, in megabytes. */
+    private static final int TABLE_MB = 16;
+    /** The default number of runs when checking or saving a baseline. */
+    private static final int DEFAULT_RUNS = 3;
+    /** The default allowed drop in rate, in percent. */
+    private static final int DEFAULT_TOLERANCE = 10;
+
+    /** Bench is not meant to be instantiated. */
+    private Bench() {
+    }
+}
@@ -0,0 +1,96 @@
+package tablut;
+
+import static tablut.Square.*;
+
+/** Sets of Squares represented as bits.  A set of the 81 squares of the
+ *  board is held in a pair of longs: bit i of the low word represents the
+ *  square with index i (0 <= i < 64), and bit i - 64 of the high word
+ *  represents the square with index i (64 <= i < 81).  All methods and
+ *  tables here are static; clients keep the pairs of words themselves.
+ *  @author Ryan Chen
+ */
+final class Bits {
+
+    /** The number of square indices held in the low word. */
+    static final int WORD = 64;
+
+    /** Return the low word of the set containing only the square with
+     *  index INDEX. */
+    static long lowBit(int index) {
+        return index < WORD ? 1L << index : 0L;
+    }
+
+    /** Return the high word of the set containing only the square with
+     *  index INDEX. */
+    static long highBit(int index) {
+        return index < WORD ? 0L : 1L << (index - WORD);
+    }
+
+    /** Return true iff the set LOW, HIGH contains the square with index
+     *  INDEX. */
+    static boolean contains(long low, long high, int index) {
+        if (index < WORD) {
+            return (low & (1L << index)) != 0;
+        }
+        return (high & (1L << (index - WORD))) != 0;
+    }
+
+    /** Return the smallest square index in the set LOW, HIGH, or -1 if
+     *  the set is empty. */
+    static int first(long low, long high) {
+        if (low != 0) {
+            return Long.numberOfTrailingZeros(low);
+        } else if (high != 0) {
+            return WORD + Long.numberOfTrailingZeros(high);
+        }
+        return -1;
+    }
+
+    /** Return the largest square index in the set LOW, HIGH, or -1 if
+     *  the set is empty. */
+    static int last(long low, long high) {
+        if (high != 0) {
+            return 2 * WORD - 1 - Long.numberOfLeadingZeros(high);
+        } else if (low != 0) {
+            return WORD - 1 - Long.numberOfLeadingZeros(low);
+        }
+        return -1;
+    }
+
+    /** Return the number of squares in the set LOW, HIGH. */
+    static int count(long low, long high) {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+
+    /** Return the index of the first square reached from the square with
+     *  index FROM in direction DIR (as for Square.rookMove) whose square is
+     *  in the set LOW, HIGH, or -1 if there is none. */
+    static int firstOnRay(int from, int dir, long low, long high) {
+        low &= RAY_LOW[from][dir];
+        high &= RAY_HIGH[from][dir];
+        return dir < 2 ? first(low, high) : last(low, high);
+    }
+
+    /** RAY_LOW[i][d] and RAY_HIGH[i][d] are the low and high words of the
+     *  set of squares one rook move in direction d from the square with
+     *  index i, as listed in Square.ROOK_SQUARES.  Directions 0 and 1
+     *  (north and east) increase square indices; 2 and 3 decrease them. */
+    static final long[][] RAY_LOW = new long[NUM_SQUARES][4],
+        RAY_HIGH = new long[NUM_SQUARES][4];
+
+    static {
+        for (Square sq : SQUARE_LIST) {
+            for (int d = 0; d < 4; d += 1) {
+                for (Square sq1 : ROOK_SQUARES[sq.index()][d]) {
+                    RAY_LOW[sq.index()][d] |= lowBit(sq1.index());
+                    RAY_HIGH[sq.index()][d] |= highBit(sq1.index());
+                }
+            }
+        }
+    }
+
+    /** Bits is not meant to be instantiated. */
+    private Bits() {
+    }
+
+}
@@ -1,12 +1,12 @@
 package tablut;
 
+import java.util.Arrays;
 import java.util.Formatter;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Stack;
+import java.util.Random;
 import java.util.ArrayList;
-import java.util.HashMap;
-import static tablut.Move.ROOK_MOVES;
+import static tablut.Bits.*;
 import static tablut.Piece.*;
 import static tablut.Square.*;
 
@@ -22,6 +22,10 @@ class Board {
     /** The number of squares on a side of the board. */
     static final int SIZE = 9;
 
+    /** An upper bound on the number of legal moves for one side in any
+     *  position: each square can be reached from at most four directions. */
+    static final int MAX_MOVES = 4 * SIZE * SIZE;
+
     /** The throne (or castle) square and its four surrounding squares.. */
     static final Square THRONE = sq(4, 4),
         NTHRONE = sq(4, 5),
@@ -47,6 +51,116 @@ class Board {
         sq(4, 6), sq(4, 2), sq(2, 4), sq(6, 4)
     };
 
+    /** The kinds of piece that occupy squares, in the order their bit sets
+     *  are searched by get. */
+    private static final Piece[] KINDS = { BLACK, WHITE, KING };
+
+    /** All Pieces, indexed by ordinal. */
+    private static final Piece[] PIECES = Piece.values();
+
+    /** The low word of the throne as a set of bits (the throne and the
+     *  squares around it all lie in the low word). */
+    private static final long THRONE_BITS = lowBit(THRONE.index());
+
+    /** The low word of SURROUNDING_THRONE as a set of bits. */
+    private static final long SURROUNDING_THRONE_BITS;
+
+    static {
+        long bits = 0;
+        for (Square s : SURROUNDING_THRONE) {
+            bits |= lowBit(s.index());
+        }
+        SURROUNDING_THRONE_BITS = bits;
+    }
+
+    /** NEIGHBOR[i][d] is the index of the square next to the square with
+     *  index i in direction d (as for Square.rookMove), or -1 if there is
+     *  none. */
+    private static final int[][] NEIGHBOR = new int[NUM_SQUARES][4];
+
+    /** PARTNER[i][d] is the index of the square two steps from the square
+     *  with index i in direction d, which must hold a friendly (or hostile)
+     *  piece for a piece moving to square i to capture the piece on
+     *  NEIGHBOR[i][d], or -1 if there is no such square. */
+    private static final int[][] PARTNER = new int[NUM_SQUARES][4];
+
+    /** SURROUND_LOW[i] and SURROUND_HIGH[i] are the low and high words of
+     *  the set of squares orthogonally adjacent to the square with index
+     *  i: those that must be hostile to capture a king there while it is
+     *  in the castle. */
+    private static final long[] SURROUND_LOW = new long[NUM_SQUARES],
+        SURROUND_HIGH = new long[NUM_SQUARES];
+
+    static {
+        for (Square s : SQUARE_LIST) {
+            int i = s.index();
+            for (int d = 0; d < 4; d += 1) {
+                Square next = s.rookMove(d, 1), partner = s.rookMove(d, 2);
+                NEIGHBOR[i][d] = next == null ? -1 : next.index();
+                PARTNER[i][d] = partner == null ? -1 : partner.index();
+                if (next != null) {
+                    SURROUND_LOW[i] |= lowBit(next.index());
+                    SURROUND_HIGH[i] |= highBit(next.index());
+                }
+            }
+        }
+    }
+
+    /** REACH[p][occ] is the set of positions (as bits) along a row or
+     *  column that a piece at position p can reach by an unblocked move,
+     *  when the bits of occ mark the occupied positions in that line. */
+    private static final int[][] REACH = new int[SIZE][1 << SIZE];
+
+    static {
+        for (int p = 0; p < SIZE; p += 1) {
+            for (int occ = 0; occ < 1 << SIZE; occ += 1) {
+                int reach = 0;
+                for (int q = p + 1; q < SIZE && (occ & 1 << q) == 0; q += 1) {
+                    reach |= 1 << q;
+                }
+                for (int q = p - 1; q >= 0 && (occ & 1 << q) == 0; q -= 1) {
+                    reach |= 1 << q;
+                }
+                REACH[p][occ] = reach;
+            }
+        }
+    }
+
+    /** The positions at either end of a row or column, as bits. */
+    private static final int EDGES = 1 | 1 << (SIZE - 1);
+    /** All positions in a row or column, as bits. */
+    private static final int LINE = (1 << SIZE) - 1;
+
+    /** The number of recent positions kept for detecting repetitions (a
+     *  power of 2). */
+    private static final int WINDOW = 256;
+
+    /** The initial capacity of the undo journal. */
+    private static final int INITIAL_JOURNAL = 256;
+
+    /** The low word of the castle (the throne and SURROUNDING_THRONE). */
+    private static final long CASTLE_BITS = THRONE_BITS
+        | SURROUNDING_THRONE_BITS;
+
+    /** ZOBRIST[p][i] is the random key contributed to hash() by a piece
+     *  with ordinal p on the square with index i (the keys for EMPTY are
+     *  unused). */
+    private static final long[][] ZOBRIST =
+        new long[Piece.values().length][NUM_SQUARES];
+
+    /** The key contributed to hash() when it is BLACK's turn. */
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        Random keys = new Random(0x7AB1L);
+        for (Piece p : KINDS) {
+            for (int i = 0; i < NUM_SQUARES; i += 1) {
+                ZOBRIST[p.ordinal()][i] = keys.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = keys.nextLong();
+    }
+
 
     /** Initializes a game board with SIZE squares on a side in the
      *  initial position. */
@@ -60,44 +174,83 @@ class Board {
         copy(model);
     }
 
+    /** Initializes a snapshot of MODEL (see snapshot()). */
+    private Board(Board model, boolean unused) {
+        copyPosition(model);
+        if (model._journalSize == 0) {
+            _base = model._base;
+            _baseSize = model._baseSize;
+        } else if (model._baseSize == 0) {
+            _base = model._journal;
+            _baseSize = model._journalSize;
+            model._journalLent = Math.max(model._journalLent, _baseSize);
+        } else {
+            _baseSize = model._baseSize + model._journalSize;
+            _base = model.history(_baseSize);
+        }
+    }
+
+    /** Return a new Board in the same position as me, for use as the root
+     *  of a search.  Unlike new Board(this), which copies my entire
+     *  history, the result shares my undo history.  Shared history is
+     *  never modified: the new Board writes its moves to a journal of its
+     *  own and reads mine only if it undoes past this point, and I copy
+     *  my journal before overwriting any part I have shared.  The recent
+     *  positions used to detect repetitions are bounded by WINDOW and are
+     *  simply copied.  Neither Board is safe to use concurrently with
+     *  snapshot(). */
+    Board snapshot() {
+        return new Board(this, true);
+    }
+
     /** Copies MODEL into me. */
     void copy(Board model) {
         if (model == this) {
             return;
         }
-        init();
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++) {
-                Square place = sq(i, j);
-                Piece piece = model.get(place);
-                put(piece, place);
-            }
-        }
-        this.undoStack.addAll(model.undoStack);
-        this.boardPositions.addAll(model.boardPositions);
+        copyPosition(model);
+        _journalSize = model._baseSize + model._journalSize;
+        _journal = model.history(Math.max(INITIAL_JOURNAL, _journalSize));
+        _journalLent = 0;
+        _base = null;
+        _baseSize = 0;
+    }
+
+    /** Copies the contents, turn, and game status of MODEL into me. */
+    private void copyPosition(Board model) {
+        System.arraycopy(model._low, 0, _low, 0, _low.length);
+        System.arraycopy(model._high, 0, _high, 0, _high.length);
+        System.arraycopy(model._rows, 0, _rows, 0, SIZE);
+        System.arraycopy(model._cols, 0, _cols, 0, SIZE);
+        _hash = model._hash;
+        _weights = model._weights;
+        _pst = model._pst;
+        System.arraycopy(model._window, 0, _window, 0, WINDOW);
+        _windowStart = model._windowStart;
+        _windowEnd = model._windowEnd;
         this._repeated = model._repeated;
         this._moveCount = model._moveCount;
         this._turn = model._turn;
         _winner = model._winner;
+        _mobilityPending = model._mobilityPending;
         _lim = model._lim;
-        this.updateKingPosition(model._kingPosition);
-
     }
 
     /** Clears the board to the initial position. */
     void init() {
-        updateKingPosition(THRONE);
         _winner = null;
+        _mobilityPending = false;
         _turn = BLACK;
         _moveCount = 0;
         _repeated = false;
         _lim = INITIAL_LIMIT;
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++) {
-                Square place = sq(i, j);
-                put(EMPTY, place);
-            }
+        for (Piece p : KINDS) {
+            _low[p.ordinal()] = _high[p.ordinal()] = 0;
         }
+        Arrays.fill(_rows, 0);
+        Arrays.fill(_cols, 0);
+        _hash = BLACK_TO_MOVE;
+        _pst = 0;
         for (Square j : INITIAL_DEFENDERS) {
             put(WHITE, j);
         }
@@ -105,6 +258,8 @@ class Board {
             put(BLACK, i);
         }
         put(KING, THRONE);
+        _windowStart = _windowEnd = 0;
+        recordPosition();
     }
 
     /** Set the move limit to LIM.  It is an error if 2*LIM <= moveCount().
@@ -129,8 +284,19 @@ class Board {
     }
 
     /** Return the winner in the current position, or null if there is no winner
-     *  yet. */
+     *  yet.  Wins by capturing or freeing the king and by repetition are
+     *  found by makeMove.  Whether the side that just moved is left without
+     *  a move is checked here, the first time winner() is asked for after a
+     *  move, so that a search pays for it only at the positions it asks
+     *  about, and then only until the first unblocked move is found. */
     Piece winner() {
+        if (_mobilityPending) {
+            _mobilityPending = false;
+            Piece side = _turn.opponent();
+            if (_winner == null && !hasMove(side)) {
+                setWinner(side.opponent());
+            }
+        }
         return _winner;
     }
 
@@ -140,30 +306,82 @@ class Board {
     }
 
     /** Record current position and set winner() next mover if the current
-     *  position is a repeat. */
-    private void checkRepeated() {
-        if (boardPositions.contains(this.encodedBoard())) {
-            _repeated = true;
-            if (_turn == WHITE) {
-                setWinner(WHITE);
-            } else if (_turn == BLACK) {
-                setWinner(BLACK);
+     *  position is a repeat.  Only positions since the last capture are
+     *  compared, since a capture can never be reversed: IRREVERSIBLE
+     *  indicates that the move just made was a capture, and so starts a new
+     *  window.  Only the last WINDOW - 1 positions are compared: the slot
+     *  of the position WINDOW moves back has been reused by a later
+     *  position, which may since have been undone. */
+    private void checkRepeated(boolean irreversible) {
+        if (irreversible) {
+            _windowStart = _windowEnd;
+        }
+        int oldest = Math.max(_windowStart, _windowEnd - WINDOW + 1);
+        for (int i = _windowEnd - 2; i >= oldest; i -= 2) {
+            if (_window[i & (WINDOW - 1)] == _hash) {
+                _repeated = true;
+                setWinner(_turn);
+                break;
             }
         }
-        boardPositions.add(this.encodedBoard());
+        recordPosition();
     }
 
-    /** Record current position and set winner() next mover if the current
-     *  position is a repeat.
-     *  @param side is the side being evaluated.*/
-    private void checkWinner(Piece side) {
+    /** Add the current position to the end of _window. */
+    private void recordPosition() {
+        _window[_windowEnd & (WINDOW - 1)] = _hash;
+        _windowEnd += 1;
+    }
+
+    /** Set winner() to WHITE if the king has reached the edge, and
+     *  otherwise leave the check that the side that just moved still has
+     *  a move to winner(). */
+    private void checkWinner() {
         if (_winner == BLACK || _winner == WHITE) {
             return;
         }
-        if (kingPosition().isEdge()) {
+        Square king = kingPosition();
+        if (king != null && king.isEdge()) {
             setWinner(WHITE);
-        } else if (!hasMove(side)) {
-            setWinner(side.opponent());
+        } else {
+            _mobilityPending = true;
+        }
+    }
+
+    /** Return the static evaluation of the current position, which is
+     *  positive when it favors white, as weighted by weights().  Takes
+     *  constant time: the piece-square term is kept up to date as pieces
+     *  move, and the other terms come from the bit sets and line
+     *  occupancies. */
+    int score() {
+        int result = _weights.white() * count(_low[WHITE.ordinal()],
+                                              _high[WHITE.ordinal()])
+            - _weights.black() * pieceCount(BLACK) + _pst;
+        long kingLow = _low[KING.ordinal()], kingHigh = _high[KING.ordinal()];
+        if ((kingLow | kingHigh) != 0) {
+            int k = first(kingLow, kingHigh), row = k / SIZE, col = k % SIZE;
+            int toEdge = Math.min(Math.min(row, SIZE - 1 - row),
+                                  Math.min(col, SIZE - 1 - col));
+            int adjacent = count(_low[BLACK.ordinal()] & SURROUND_LOW[k],
+                                 _high[BLACK.ordinal()] & SURROUND_HIGH[k]);
+            result += _weights.route() * kingToEdge()
+                - _weights.distance() * toEdge
+                - _weights.adjacent() * adjacent;
+        }
+        return result;
+    }
+
+    /** Return the weights used by score(). */
+    Weights weights() {
+        return _weights;
+    }
+
+    /** Use WEIGHTS for score() from now on. */
+    void setWeights(Weights weights) {
+        _weights = weights;
+        _pst = 0;
+        for (int i = 0; i < NUM_SQUARES; i += 1) {
+            _pst += weights.pst(pieceAt(i), i);
         }
     }
 
@@ -173,27 +391,69 @@ class Board {
         return _moveCount;
     }
 
-    /** Updates the King's position.
-     * @param to is the position where the king is now */
-    void updateKingPosition(Square to) {
-        _kingPosition = to;
+    /** Return the Zobrist hash of the current position: the XOR of a
+     *  random key for each (piece, square) pair on the board and, when it
+     *  is BLACK's turn, of a key for the side to move.  Equal positions
+     *  have equal hashes however they were reached. */
+    long hash() {
+        return _hash;
     }
 
-
-    /** Return location of the king. */
+    /** Return location of the king, or null if it is not on the board. */
     Square kingPosition() {
-        return _kingPosition;
+        int k = first(_low[KING.ordinal()], _high[KING.ordinal()]);
+        return k < 0 ? null : sq(k);
     }
 
     /** Return the contents the square at S. */
     final Piece get(Square s) {
-        return get(s.col(), s.row());
+        return pieceAt(s.index());
     }
 
     /** Return the contents of the square at (COL, ROW), where
      *  0 <= COL, ROW <= 9. */
     final Piece get(int col, int row) {
-        return tablet[col][row];
+        return pieceAt(row * SIZE + col);
+    }
+
+    /** Return the contents of the square with index INDEX. */
+    private Piece pieceAt(int index) {
+        for (Piece p : KINDS) {
+            if (contains(_low[p.ordinal()], _high[p.ordinal()], index)) {
+                return p;
+            }
+        }
+        return EMPTY;
+    }
+
+    /** Return the low word of the set of occupied squares. */
+    private long occupiedLow() {
+        return _low[BLACK.ordinal()] | _low[WHITE.ordinal()]
+            | _low[KING.ordinal()];
+    }
+
+    /** Return the high word of the set of occupied squares. */
+    private long occupiedHigh() {
+        return _high[BLACK.ordinal()] | _high[WHITE.ordinal()]
+            | _high[KING.ordinal()];
+    }
+
+    /** Return the low word of the set of squares holding pieces on SIDE
+     *  (the king being on WHITE's side). */
+    private long sideLow(Piece side) {
+        if (side.side() == BLACK) {
+            return _low[BLACK.ordinal()];
+        }
+        return _low[WHITE.ordinal()] | _low[KING.ordinal()];
+    }
+
+    /** Return the high word of the set of squares holding pieces on
+     *  SIDE. */
+    private long sideHigh(Piece side) {
+        if (side.side() == BLACK) {
+            return _high[BLACK.ordinal()];
+        }
+        return _high[WHITE.ordinal()] | _high[KING.ordinal()];
     }
 
 
@@ -204,22 +464,81 @@ class Board {
 
     /** Set square S to P. */
     final void put(Piece p, Square s) {
-        tablet[s.col()][s.row()] = p;
+        int i = s.index();
+        Piece old = pieceAt(i);
+        _pst += _weights.pst(p, i) - _weights.pst(old, i);
+        if (old != EMPTY) {
+            _hash ^= ZOBRIST[old.ordinal()][i];
+            _rows[s.row()] &= ~(1 << s.col());
+            _cols[s.col()] &= ~(1 << s.row());
+        }
+        if (p != EMPTY) {
+            _hash ^= ZOBRIST[p.ordinal()][i];
+            _rows[s.row()] |= 1 << s.col();
+            _cols[s.col()] |= 1 << s.row();
+        }
+        long low = lowBit(i), high = highBit(i);
+        for (Piece k : KINDS) {
+            _low[k.ordinal()] &= ~low;
+            _high[k.ordinal()] &= ~high;
+        }
+        if (p != EMPTY) {
+            _low[p.ordinal()] |= low;
+            _high[p.ordinal()] |= high;
+        }
     }
 
     /** Set square S to P and record for undoing. */
     final void revPut(Piece p, Square s) {
-        HashMap<Piece, Square> undo = new HashMap<>();
-        undo.put(get(s), s);
+        record(s.index() << 2 | get(s).ordinal());
         put(p, s);
-        undoStack.push(undo);
     }
 
-    /** Insert null in the stack. */
+    /** Record the start of a move in the undo journal. */
     final void revPut() {
-        undoStack.push(null);
+        record(-1 - _windowStart);
+    }
+
+    /** Append ENTRY to the undo journal.  A negative entry marks the start
+     *  of a move, and holds -1 minus the _windowStart before the move.
+     *  Other entries hold the index of a square shifted left 2 bits, ORed
+     *  with the ordinal of the Piece that was on it. */
+    private void record(int entry) {
+        if (_journalSize == _journal.length) {
+            _journal = Arrays.copyOf(_journal, 2 * _journal.length);
+            _journalLent = 0;
+        } else if (_journalSize < _journalLent) {
+            _journal = _journal.clone();
+            _journalLent = 0;
+        }
+        _journal[_journalSize] = entry;
+        _journalSize += 1;
+    }
+
+    /** Remove and return the last entry of the undo journal, which must
+     *  not be empty, taking it from the shared part once my own entries
+     *  are exhausted. */
+    private int unrecord() {
+        if (_journalSize > 0) {
+            _journalSize -= 1;
+            return _journal[_journalSize];
+        }
+        _baseSize -= 1;
+        return _base[_baseSize];
     }
 
+    /** Return a new array of CAPACITY entries that starts with my entire
+     *  undo journal, which must fit. */
+    private int[] history(int capacity) {
+        int[] result = new int[capacity];
+        if (_baseSize > 0) {
+            System.arraycopy(_base, 0, result, 0, _baseSize);
+        }
+        System.arraycopy(_journal, 0, result, _baseSize, _journalSize);
+        return result;
+    }
+
+
     /** Set square COL ROW to P. */
     final void put(Piece p, char col, char row) {
         put(p, sq(col - 'a', row - '1'));
@@ -232,22 +551,15 @@ class Board {
         if (get(from) != KING && to == THRONE) {
             return false;
         }
-        if (from.isRookMove(to)) {
-            int direction = from.direction(to);
-            int index = from.index();
-            for (Square sq : ROOK_SQUARES[index][direction]) {
-                if (get(sq) != EMPTY) {
-                    return false;
-                }
-                if (sq == to) {
-                    return true;
-                }
-            }
+        if (!from.isRookMove(to)) {
+            return false;
+        } else if (from.row() == to.row()) {
+            return (REACH[from.col()][_rows[from.row()]] & 1 << to.col()) != 0;
+        } else {
+            return (REACH[from.row()][_cols[from.col()]] & 1 << to.row()) != 0;
         }
-        return false;
     }
 
-
     /** Return true iff FROM is a valid starting square for a move. */
     boolean isLegal(Square from) {
         return get(from).side() == _turn;
@@ -268,89 +580,72 @@ class Board {
     void makeMove(Square from, Square to) {
         assert isLegal(from, to);
         checkMoveLimit();
-        Piece side = get(from).side();
-        if (get(from) == KING) {
-            updateKingPosition(to);
-        }
+        int start = _journalSize;
         this.revPut();
         this.revPut(get(from), to);
         this.revPut(EMPTY, from);
         checkCapture(to);
         _moveCount++;
-        boardPositions.add(this.encodedBoard());
         switchTurns();
-        checkRepeated();
-        checkWinner(side);
+        checkRepeated(_journalSize - start > 3);
+        checkWinner();
     }
 
     /** Check squares for pieces that are eligible to be captured.
      * @param to is the square being checked */
     void checkCapture(Square to) {
-        boolean isThroneHostile = false; Square sq0 = to;
-        ArrayList<Square> squares = new ArrayList<>();
-        for (int i = 0; i < 4; i++) {
-            if (ROOK_SQUARES[to.index()][i].size() >= 2) {
-                squares.add(ROOK_SQUARES[to.index()][i].get(1));
-            }
+        int sq0 = to.index();
+        Piece side = get(to).side();
+        if (side == EMPTY) {
+            return;
         }
-        switch (get(to).side()) {
-        case BLACK:
-            if (kingPosition() != THRONE) {
-                isThroneHostile = true;
-            } else if (kingPosition() == THRONE) {
-                int count = 0;
-                for (Square s : SURROUNDING_THRONE) {
-                    if (get(s).side() == BLACK) {
-                        count++;
-                    }
-                }
-                if (count >= 3) {
-                    isThroneHostile = true;
-                }
+        Piece enemy = side.opponent();
+        long ownLow = sideLow(side), ownHigh = sideHigh(side),
+            enemyLow = sideLow(enemy), enemyHigh = sideHigh(enemy);
+        boolean kingInCastle = side == BLACK && kingInCastle();
+        for (int dir = 0; dir < 4; dir += 1) {
+            int sq1 = NEIGHBOR[sq0][dir], sq2 = PARTNER[sq0][dir];
+            if (sq2 < 0 || !contains(enemyLow, enemyHigh, sq1)) {
+                continue;
             }
-            boolean kingInCastle = kingInCastle();
-            for (Square sq2 : squares) {
-                Square sq1 = sq0.between(sq2);
-                if ((get(sq1) == KING) && kingInCastle) {
-                    Square[] temp = {sq0.diag1(sq2), sq0.diag2(sq2), sq2, sq0};
-                    int check = 0;
-                    for (Square sq : temp) {
-                        if (get(sq).side() == BLACK
-                                || (sq == THRONE && isThroneHostile)) {
-                            check++;
-                        }
-                    }
-                    if (check == 4) {
-                        capture(sq0, sq2);
-                    }
-                } else {
-                    if ((get(sq0).side() == get(sq2).side()
-                            || (sq2 == THRONE && isThroneHostile))
-                            && (get(sq0).opponent() == get(sq1).side())) {
-                        capture(sq0, sq2);
-                    }
+            if (kingInCastle && pieceAt(sq1) == KING) {
+                if (kingSurrounded(sq1)) {
+                    capture(sq1);
                 }
+            } else if (contains(ownLow, ownHigh, sq2)
+                       || (sq2 == THRONE.index() && throneHostile(enemy))) {
+                capture(sq1);
             }
-            break;
-        case WHITE:
-            for (Square sq2 : squares) {
-                Square sq1 = sq0.between(sq2);
-                if (get(sq0).side() == get(sq2).side() || (sq2 == THRONE)) {
-                    if (get(sq0).opponent() == get(sq1).side()) {
-                        capture(sq0, sq2);
-                    }
-                }
-            }
-            break;
-        default:
         }
     }
 
+    /** Return true iff the throne counts as hostile to the pieces of
+     *  SIDE.  It is always hostile to BLACK.  It is hostile to WHITE if
+     *  it is empty, or if the king is on it and at least three of the
+     *  squares around it hold black pieces. */
+    private boolean throneHostile(Piece side) {
+        if (side == BLACK || (_low[KING.ordinal()] & THRONE_BITS) == 0) {
+            return true;
+        }
+        return Long.bitCount(_low[BLACK.ordinal()]
+                             & SURROUNDING_THRONE_BITS) >= 3;
+    }
+
+    /** Return true iff the king, on the square with index K in the castle,
+     *  is surrounded on all four sides by black pieces or by a hostile
+     *  throne. */
+    private boolean kingSurrounded(int k) {
+        int hostile = count(_low[BLACK.ordinal()] & SURROUND_LOW[k],
+                            _high[BLACK.ordinal()] & SURROUND_HIGH[k]);
+        if ((SURROUND_LOW[k] & THRONE_BITS) != 0 && throneHostile(WHITE)) {
+            hostile += 1;
+        }
+        return hostile == 4;
+    }
+
     /** Returns true if King is in the castle. */
     boolean kingInCastle() {
-        return kingPosition() == THRONE || kingPosition() == NTHRONE
-                || kingPosition() == STHRONE || kingPosition() == ETHRONE
-                || kingPosition() == WTHRONE;
+        return (_low[KING.ordinal()] & CASTLE_BITS) != 0;
     }
 
     /** Switches turns. */
@@ -360,6 +655,27 @@ class Board {
         } else {
             _turn = BLACK;
         }
+        _hash ^= BLACK_TO_MOVE;
+    }
+
+    /** Pass the turn to the other side without moving, as a search does
+     *  to test whether a position is good even without its move.  The
+     *  resulting position takes a slot in _window, as a move's would, so
+     *  that checkRepeated still compares positions with the same side to
+     *  move in the moves that follow; it is not itself checked for
+     *  repetition.  moveCount() does not change.  Must be reversed by
+     *  undoNullMove before the board is otherwise changed, and only when
+     *  there is no winner. */
+    void makeNullMove() {
+        assert _winner == null && !_mobilityPending;
+        switchTurns();
+        recordPosition();
+    }
+
+    /** Reverse the effect of makeNullMove. */
+    void undoNullMove() {
+        _windowEnd -= 1;
+        switchTurns();
     }
 
     /** Move according to MOVE, assuming it is a legal move. */
@@ -367,91 +683,275 @@ class Board {
         makeMove(move.from(), move.to());
     }
 
-    /** Capture the piece between SQ0 and SQ2, assuming a piece just moved to
-     *  SQ0 and the necessary conditions are satisfied. */
-    private void capture(Square sq0, Square sq2) {
-        Square sq1 = sq0.between(sq2);
-        if (get(sq1) == KING) {
+    /** Capture the piece on the square with index SQ1, assuming the
+     *  necessary conditions are satisfied. */
+    private void capture(int sq1) {
+        Square victim = sq(sq1);
+        if (get(victim) == KING) {
             setWinner(BLACK);
         }
-        revPut(EMPTY, sq1);
+        revPut(EMPTY, victim);
     }
 
     /** Undo one move. Has no effect on the initial board. */
     void undo() {
-        if (_moveCount > 0) {
-            undoPosition();
-            while (undoStack.peek() != null) {
-                HashMap<Piece, Square> undo = undoStack.pop();
-                Piece p = null;
-                if (undo.containsKey(BLACK)) {
-                    p = BLACK;
-                } else if (undo.containsKey(WHITE)) {
-                    p = WHITE;
-                } else if (undo.containsKey(EMPTY)) {
-                    p = EMPTY;
-                } else if (undo.containsKey(KING)) {
-                    p = KING;
-                }
-                Square sq = undo.get(p);
-                if (p == KING) {
-                    updateKingPosition(sq);
+        if (_moveCount > 0 && _journalSize + _baseSize > 0) {
+            _windowEnd -= 1;
+            while (true) {
+                int entry = unrecord();
+                if (entry < 0) {
+                    _windowStart = -1 - entry;
+                    break;
                 }
-                put(p, sq);
-            }
-            if (undoStack.peek() == null) {
-                undoStack.pop();
+                put(PIECES[entry & 3], sq(entry >> 2));
             }
             setWinner(null);
+            _mobilityPending = false;
             _repeated = false;
             _moveCount--;
             switchTurns();
         }
     }
 
-    /** Remove record of current position in the set of positions encountered,
-     *  unless it is a repeated position or we are at the first move. */
-    private void undoPosition() {
-        if (_repeated) {
-            return;
-        }
-        boardPositions.remove(this.encodedBoard());
-    }
-
     /** Clear the undo stack and board-position counts. Does not modify the
      *  current position or win status. */
     void clearUndo() {
-        undoStack.clear();
-        boardPositions.clear();
+        _journalSize = 0;
+        _base = null;
+        _baseSize = 0;
+        _windowStart = _windowEnd;
+        recordPosition();
     }
 
     /** Return a new mutable list of all legal moves on the current board for
      *  SIDE (ignoring whose turn it is at the moment). */
     List<Move> legalMoves(Piece side) {
-        List<Move> legalMoves = new ArrayList<>();
-        for (Square sq: pieceLocations(side)) {
-            for (int dir = 0; dir < 4; dir++) {
-                for (Move move : ROOK_MOVES[sq.index()][dir]) {
-                    if (isUnblockedMove(move.from(), move.to())) {
-                        legalMoves.add(move);
-                    }
-                }
-            }
+        int[] moves = new int[MAX_MOVES];
+        int n = legalMoves(side, moves);
+        List<Move> legalMoves = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            legalMoves.add(Move.mv(moves[i]));
         }
         return legalMoves;
     }
 
+    /** Store the index() of each legal move on the current board for SIDE
+     *  (ignoring whose turn it is at the moment) in MOVES, starting at 0,
+     *  and return the number of moves stored.  MOVES must have room for
+     *  MAX_MOVES entries.  Allocates nothing, so that a search can reuse
+     *  one array for each ply. */
+    int legalMoves(Piece side, int[] moves) {
+        int n = 0;
+        for (long w = sideLow(side); w != 0; w &= w - 1) {
+            n = addMoves(Long.numberOfTrailingZeros(w), moves, n);
+        }
+        for (long w = sideHigh(side); w != 0; w &= w - 1) {
+            n = addMoves(WORD + Long.numberOfTrailingZeros(w), moves, n);
+        }
+        return n;
+    }
+
+    /** Store the index() of each unblocked move of the piece on the square
+     *  with index FROM in MOVES, starting at N.  Return the new number of
+     *  entries. */
+    private int addMoves(int from, int[] moves, int n) {
+        int row = from / SIZE, col = from % SIZE;
+        boolean isKing = contains(_low[KING.ordinal()],
+                                  _high[KING.ordinal()], from);
+        return addMoves(from, acrossReach(row, col, isKing),
+                        alongReach(row, col, isKing), moves, n);
+    }
+
+    /** Store the index() of each move from the square with index FROM to
+     *  the columns in ACROSS (along its row) and the rows in ALONG (along
+     *  its column) in MOVES, starting at N.  Return the new number of
+     *  entries. */
+    private int addMoves(int from, int across, int along, int[] moves,
+                         int n) {
+        int row = from / SIZE, col = from % SIZE;
+        for (; across != 0; across &= across - 1) {
+            moves[n++] = Move.index(from, row * SIZE
+                                    + Integer.numberOfTrailingZeros(across));
+        }
+        for (; along != 0; along &= along - 1) {
+            moves[n++] = Move.index(from,
+                                    Integer.numberOfTrailingZeros(along) * SIZE
+                                    + col);
+        }
+        return n;
+    }
+
+    /** Return the set of columns (as bits) that the piece at ROW and COL
+     *  can reach by moving along its row, where ISKING indicates whether
+     *  the piece is the king (which alone may stop on the throne). */
+    private int acrossReach(int row, int col, boolean isKing) {
+        int reach = REACH[col][_rows[row]];
+        if (!isKing && row == THRONE.row()) {
+            reach &= ~(1 << THRONE.col());
+        }
+        return reach;
+    }
+
+    /** Return the set of rows (as bits) that the piece at ROW and COL can
+     *  reach by moving along its column, where ISKING is as for
+     *  acrossReach. */
+    private int alongReach(int row, int col, boolean isKing) {
+        int reach = REACH[row][_cols[col]];
+        if (!isKing && col == THRONE.col()) {
+            reach &= ~(1 << THRONE.row());
+        }
+        return reach;
+    }
+
+    /** Store the index() of each legal move for SIDE that captures a piece
+     *  or brings the king to an edge in MOVES, starting at 0, and return
+     *  the number of moves stored.  As for legalMoves, allocates nothing.
+     *  Whether the throne is hostile is judged before the move, so a move
+     *  that changes that is classified as if it did not. */
+    int tacticalMoves(Piece side, int[] moves) {
+        markTargets(side);
+        int n = 0;
+        for (long w = sideLow(side); w != 0; w &= w - 1) {
+            n = addTacticalMoves(Long.numberOfTrailingZeros(w), moves, n);
+        }
+        for (long w = sideHigh(side); w != 0; w &= w - 1) {
+            n = addTacticalMoves(WORD + Long.numberOfTrailingZeros(w),
+                                 moves, n);
+        }
+        return n;
+    }
+
+    /** Store the index() of each move of the piece on the square with
+     *  index FROM to a square marked by markTargets, or of the king to an
+     *  edge, in MOVES, starting at N.  Return the new number of entries. */
+    private int addTacticalMoves(int from, int[] moves, int n) {
+        int row = from / SIZE, col = from % SIZE;
+        boolean isKing = contains(_low[KING.ordinal()],
+                                  _high[KING.ordinal()], from);
+        int across = _targetRows[row], along = _targetCols[col];
+        if (isKing) {
+            across |= row == 0 || row == SIZE - 1 ? LINE : EDGES;
+            along |= col == 0 || col == SIZE - 1 ? LINE : EDGES;
+        }
+        across &= acrossReach(row, col, isKing);
+        along &= alongReach(row, col, isKing);
+        return addMoves(from, across, along, moves, n);
+    }
+
+    /** Prepare for calls to isTactical for the moves of SIDE in the
+     *  current position.  Valid until the position changes. */
+    void markTactical(Piece side) {
+        markTargets(side);
+    }
+
+    /** Return true iff the legal move with index() MOVE, by the side last
+     *  passed to markTactical, would capture a piece or bring the king to
+     *  an edge, judged as by tacticalMoves, without making it. */
+    boolean isTactical(int move) {
+        Move mv = Move.mv(move);
+        int to = mv.to().index();
+        if ((_targetRows[to / SIZE] & (1 << (to % SIZE))) != 0) {
+            return true;
+        }
+        return mv.to().isEdge() && pieceAt(mv.from().index()) == KING;
+    }
+
+    /** Set _targetRows and _targetCols to the empty squares to which a
+     *  piece of SIDE could move to capture a piece. */
+    private void markTargets(Piece side) {
+        Arrays.fill(_targetRows, 0);
+        Arrays.fill(_targetCols, 0);
+        Piece enemy = side.opponent();
+        long ownLow = sideLow(side), ownHigh = sideHigh(side);
+        boolean hostileThrone = throneHostile(enemy);
+        int castledKing = -1;
+        if (side == BLACK && kingInCastle()) {
+            castledKing = first(_low[KING.ordinal()], _high[KING.ordinal()]);
+            markKingTarget(castledKing);
+        }
+        for (long w = sideLow(enemy); w != 0; w &= w - 1) {
+            int e = Long.numberOfTrailingZeros(w);
+            if (e != castledKing) {
+                markTargets(e, ownLow, ownHigh, hostileThrone);
+            }
+        }
+        for (long w = sideHigh(enemy); w != 0; w &= w - 1) {
+            markTargets(WORD + Long.numberOfTrailingZeros(w), ownLow,
+                        ownHigh, hostileThrone);
+        }
+    }
+
+    /** Mark the empty squares next to the square with index E opposite
+     *  either a member of the set OWNLOW, OWNHIGH or the throne, when
+     *  HOSTILETHRONE. */
+    private void markTargets(int e, long ownLow, long ownHigh,
+                             boolean hostileThrone) {
+        for (int dir = 0; dir < 4; dir += 1) {
+            int t = NEIGHBOR[e][dir], p = NEIGHBOR[e][dir ^ 2];
+            if (t < 0 || p < 0 || pieceAt(t) != EMPTY) {
+                continue;
+            }
+            if (contains(ownLow, ownHigh, p)
+                || (p == THRONE.index() && hostileThrone)) {
+                markTarget(t);
+            }
+        }
+    }
+
+    /** Mark the square next to the king, on the square with index K in the
+     *  castle, that would complete its surrounding, if there is exactly
+     *  one such square and it is empty. */
+    private void markKingTarget(int k) {
+        int hostile = 0, open = -1;
+        for (int dir = 0; dir < 4; dir += 1) {
+            int t = NEIGHBOR[k][dir];
+            if (pieceAt(t) == BLACK
+                || (t == THRONE.index() && throneHostile(WHITE))) {
+                hostile += 1;
+            } else {
+                open = t;
+            }
+        }
+        if (hostile == 3 && pieceAt(open) == EMPTY) {
+            markTarget(open);
+        }
+    }
+
+    /** Mark the square with index T in _targetRows and _targetCols. */
+    private void markTarget(int t) {
+        _targetRows[t / SIZE] |= 1 << (t % SIZE);
+        _targetCols[t % SIZE] |= 1 << (t / SIZE);
+    }
+
     /** Return the total number of legal moves. */
     int totalLegalMoves() {
-        return legalMoves(_turn).size();
+        return legalMoves(_turn, new int[MAX_MOVES]);
     }
 
-    /** Return true iff SIDE has a legal move. */
+    /** Return true iff SIDE has a legal move.  Stops at the first piece
+     *  found to have one. */
     boolean hasMove(Piece side) {
-        if (legalMoves(side).isEmpty()) {
-            return false;
+        for (long w = sideLow(side); w != 0; w &= w - 1) {
+            if (canMove(Long.numberOfTrailingZeros(w))) {
+                return true;
+            }
         }
-        return true;
+        for (long w = sideHigh(side); w != 0; w &= w - 1) {
+            if (canMove(WORD + Long.numberOfTrailingZeros(w))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return true iff the piece on the square with index FROM has an
+     *  unblocked move. */
+    private boolean canMove(int from) {
+        int row = from / SIZE, col = from % SIZE;
+        boolean isKing = contains(_low[KING.ordinal()],
+                                  _high[KING.ordinal()], from);
+        return (acrossReach(row, col, isKing)
+                | alongReach(row, col, isKing)) != 0;
     }
 
     @Override
@@ -489,38 +989,52 @@ class Board {
     HashSet<Square> pieceLocations(Piece side) {
         assert side != EMPTY;
         HashSet<Square> locations = new HashSet<>();
-        for (Square sq : SQUARE_LIST) {
-            if (this.get(sq).side() == side.side()) {
-                locations.add(sq);
-            }
+        for (long w = sideLow(side); w != 0; w &= w - 1) {
+            locations.add(sq(Long.numberOfTrailingZeros(w)));
+        }
+        for (long w = sideHigh(side); w != 0; w &= w - 1) {
+            locations.add(sq(WORD + Long.numberOfTrailingZeros(w)));
         }
         return locations;
     }
 
-    /** Return how many routes the king has to edge. */
-    final int kingToEdge() {
-        int counter = 0;
-        if (isLegal(_kingPosition, sq(_kingPosition.col(), 0))) {
-            counter++;
-        }
-        if (isLegal(_kingPosition, sq(_kingPosition.col(), 8))) {
-            counter++;
+    /** Store the indices of the squares holding pieces on SIDE in SQUARES
+     *  in increasing order, starting at 0, and return how many there are.
+     *  SQUARES must have room for NUM_SQUARES entries. */
+    int pieceLocations(Piece side, int[] squares) {
+        assert side != EMPTY;
+        int n = 0;
+        for (long w = sideLow(side); w != 0; w &= w - 1) {
+            squares[n++] = Long.numberOfTrailingZeros(w);
         }
-        if (isLegal(_kingPosition, sq(0, _kingPosition.row()))) {
-            counter++;
+        for (long w = sideHigh(side); w != 0; w &= w - 1) {
+            squares[n++] = WORD + Long.numberOfTrailingZeros(w);
         }
-        if (isLegal(_kingPosition, sq(8, _kingPosition.row()))) {
-            counter++;
+        return n;
+    }
+
+    /** Return the number of pieces on SIDE (the king counting as WHITE). */
+    int pieceCount(Piece side) {
+        return count(sideLow(side), sideHigh(side));
+    }
+
+    /** Return how many routes the king has to edge. */
+    final int kingToEdge() {
+        Square king = kingPosition();
+        if (king == null) {
+            return 0;
         }
-        return counter;
+        int row = king.row(), col = king.col();
+        return Integer.bitCount(REACH[col][_rows[row]] & EDGES)
+            + Integer.bitCount(REACH[row][_cols[col]] & EDGES);
     }
     /** Return number of black pieces. */
     public int getNumBlackPieces() {
-        return pieceLocations(BLACK).size();
+        return pieceCount(BLACK);
     }
-    /** Return number of black pieces. */
+    /** Return number of white pieces, including the king. */
     public int getNumWhitePieces() {
-        return pieceLocations(WHITE).size();
+        return pieceCount(WHITE);
     }
 
     /** Sets the winner of the game.
@@ -541,38 +1055,78 @@ class Board {
     }
     /** Return the number of defenders of the king. */
     int numDefenders() {
-        int count = 0;
+        int count = 0, k = kingPosition().index();
+        long occLow = occupiedLow(), occHigh = occupiedHigh();
         for (int d = 0; d < 4; d++) {
-            for (Square sq : ROOK_SQUARES[this.kingPosition().index()][d]) {
-                if (!isUnblockedMove(kingPosition(), sq)) {
-                    if (get(sq).side() == WHITE) {
-                        count++;
-                    }
-                    break;
-                }
+            int stop = firstOnRay(k, d, occLow, occHigh);
+            if (stop >= 0 && pieceAt(stop).side() == WHITE) {
+                count++;
             }
         }
         return count;
     }
 
-    /** The tablet representation of the board. */
-    private Piece[][] tablet = new Piece[SIZE][SIZE];
-    /** The undo stack. */
-    private Stack<HashMap<Piece, Square>> undoStack = new Stack<>();
-    /** The positions of the board. */
-    private HashSet<String> boardPositions = new HashSet<>();
+    /** The low words of the sets of squares occupied by each kind of
+     *  piece, indexed by ordinal (the entry for EMPTY is unused). */
+    private final long[] _low = new long[Piece.values().length];
+    /** The high words of the sets of squares occupied by each kind of
+     *  piece, indexed as for _low. */
+    private final long[] _high = new long[Piece.values().length];
+    /** The weights used by score(). */
+    private Weights _weights = Weights.DEFAULT;
+    /** The sum of the piece-square values of the pieces on the board under
+     *  _weights. */
+    private int _pst;
+    /** _rows[r] is the set of occupied columns in row r, as bits. */
+    private final int[] _rows = new int[SIZE];
+    /** _cols[c] is the set of occupied rows in column c, as bits. */
+    private final int[] _cols = new int[SIZE];
+    /** Scratch space for tacticalMoves: the squares (as bits of each row
+     *  and of each column) to which a move would capture. */
+    private final int[] _targetRows = new int[SIZE],
+        _targetCols = new int[SIZE];
+    /** The undo journal: for each move not yet undone, a mark followed by
+     *  the squares it changed and their previous contents, as
+     *  described in record.  Grows as needed and is otherwise reused, so
+     *  making and undoing moves allocates nothing once it is large enough
+     *  for the game. */
+    private int[] _journal = new int[INITIAL_JOURNAL];
+    /** The number of entries in use in _journal. */
+    private int _journalSize;
+    /** The number of leading entries of _journal that are shared with
+     *  snapshots of me, and so must be copied before being overwritten. */
+    private int _journalLent;
+    /** The older part of the undo journal, preceding _journal, when it is
+     *  shared with the Board I am a snapshot of, or null. */
+    private int[] _base;
+    /** The number of entries of _base that precede _journal. */
+    private int _baseSize;
+    /** A ring of the hashes of the positions reached so far.  The Kth
+     *  position recorded is at index K modulo WINDOW, and the last one
+     *  recorded is the current position. */
+    private final long[] _window = new long[WINDOW];
+    /** The number of the oldest recorded position that can still recur:
+     *  the position reached by the last capture, or the position at the
+     *  last init or clearUndo. */
+    private int _windowStart;
+    /** The number of positions recorded in _window (including those that
+     *  have since been overwritten). */
+    private int _windowEnd;
+    /** The Zobrist hash of the current position (see hash()). */
+    private long _hash;
     /** Piece whose turn it is (WHITE or BLACK). */
     private Piece _turn;
     /** Cached value of winner on this board, or EMPTY if it has not been
      *  computed. */
     private Piece _winner;
+    /** True iff winner() has yet to check that the side that made the last
+     *  move still has a move. */
+    private boolean _mobilityPending;
     /** Number of (still undone) moves since initial position. */
     private int _moveCount;
     /** True when current board is a repeated position (ending the game). */
     private boolean _repeated;
     /** The move limit of the game. */
     private int _lim;
-    /** Keeps Track of the King Position. */
-    private Square _kingPosition;
 
 }
@@ -0,0 +1,28 @@
+package tablut;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event for the execution of one command by a
+ *  Controller.  Its duration is the latency of the command.
+ *  @author Ryan Chen
+ */
+@Name("tablut.Command")
+@Label("Command")
+@Category({ "Tablut", "Controller" })
+@Description("Execution of a command")
+@StackTrace(false)
+final class CommandEvent extends Event {
+
+    /** The command, without comments and in lower case. */
+    @Label("Command")
+    String command;
+
+    /** True iff the command was valid and succeeded. */
+    @Label("Succeeded")
+    boolean succeeded;
+}
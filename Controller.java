@@ -120,6 +120,33 @@ final class Controller {
         return _black.isManual();
     }
 
+    /** Return the transposition table shared by my automated players. */
+    TranspositionTable transpositionTable() {
+        return _table;
+    }
+
+    /** Return the time in milliseconds that an automated player may spend
+     *  choosing a move, or 0 if unlimited. */
+    long timeBudget() {
+        return _timeBudget;
+    }
+
+    /** Return the number of positions that an automated player may search
+     *  in choosing a move, or 0 if unlimited. */
+    long nodeBudget() {
+        return _nodeBudget;
+    }
+
+    /** Evaluate positions for my automated players using WEIGHTS. */
+    void setWeights(Weights weights) {
+        _board.setWeights(weights);
+    }
+
+    /** Return the options for searches by my automated players. */
+    SearchOptions searchOptions() {
+        return _options;
+    }
+
     /** Report error by calling reportError(FORMAT, ARGS) on my reporter. */
     void reportError(String format, Object... args) {
         _reporter.reportError(format, args);
@@ -130,6 +157,22 @@ final class Controller {
         _reporter.reportNote(format, args);
     }
 
+    /** Record STATS, the statistics of an automated player's search, as
+     *  searchStats(), and report them by calling reportInfo(STATS) on my
+     *  reporter if the "info" search option is on. */
+    void reportInfo(SearchStats stats) {
+        _searchStats = stats;
+        if (stats != null && _options.info()) {
+            _reporter.reportInfo(stats);
+        }
+    }
+
+    /** Return the statistics of the last search by an automated player,
+     *  or null if there has been none. */
+    SearchStats searchStats() {
+        return _searchStats;
+    }
+
     /** Report move by calling reportMove(MOVE) on my reporter. */
     void reportMove(Move move) {
         _reporter.reportMove(move);
@@ -169,10 +212,16 @@ final class Controller {
         new Command("new$", this::doNew),
         new Command("seed\\s+(\\d+)$", this::doSeed),
         new Command("dump$", this::doDump),
+        new Command("perft\\s+(\\d+)$", this::doPerft),
+        new Command("bench(?:\\s+(\\d+))?$", this::doBench),
         new Command("undo$", this::doUndo),
         new Command("manual\\s+(white|black)$", this::doManual),
         new Command("auto\\s+(white|black)$", this::doAuto),
         new Command("limit\\s+(\\d+)$", this::doLimit),
+        new Command("hash\\s+(\\d+)$", this::doHash),
+        new Command("time\\s+(\\d+)$", this::doTime),
+        new Command("nodes\\s+(\\d+)$", this::doNodes),
+        new Command("set\\s+(\\w+)\\s+(\\w+)$", this::doSet),
         new Command("toggle\\s+" + SQ + "$", this::doToggle),
         new Command(Move.MOVE_PATTERN.pattern(), this::doMove)
     };
@@ -197,21 +246,42 @@ final class Controller {
         for (Command parser : _commands) {
             parser._matcher.reset(cmnd);
             if (parser._matcher.matches()) {
-                parser._processor.accept(parser._matcher);
+                CommandEvent event = new CommandEvent();
+                event.begin();
+                try {
+                    parser._processor.accept(parser._matcher);
+                    event.succeeded = true;
+                } finally {
+                    if (event.shouldCommit()) {
+                        event.command = cmnd;
+                        event.commit();
+                    }
+                }
                 return;
             }
         }
         throw error("Bad command: %s", cmnd);
     }
 
+    /** Stop any work my players are doing between moves (see
+     *  Player.stopThinking), before a command that changes the game, the
+     *  players, or the transposition table. */
+    private void stopThinking() {
+        _white.stopThinking();
+        _black.stopThinking();
+    }
+
     /** Command "new". */
     private void doNew(Matcher unused) {
+        stopThinking();
         _board.init();
+        _table.clear();
         _winner = null;
     }
 
     /** Command "manual <color>", where <color> is COLOR.group(1). */
     private void doManual(Matcher color) {
+        stopThinking();
         switch (color.group(1)) {
         case "black":
             _black = _manualPlayerTemplate.create(BLACK, this);
@@ -227,6 +297,7 @@ final class Controller {
 
     /** Command "auto <color>", where <color> is COLOR.group(1). */
     private void doAuto(Matcher color) {
+        stopThinking();
         switch (color.group(1)) {
         case "black":
             _black = _autoPlayerTemplate.create(BLACK, this);
@@ -259,6 +330,7 @@ final class Controller {
 
     /** Command "quit". */
     private void doQuit(Matcher unused) {
+        stopThinking();
         _playing = false;
     }
 
@@ -280,6 +352,47 @@ final class Controller {
         }
     }
 
+    /** Command "hash N", which replaces the transposition table with an
+     *  empty one of N megabytes, where N is the first group of MAT. */
+    private void doHash(Matcher mat) {
+        stopThinking();
+        try {
+            _table.resize(Integer.parseInt(mat.group(1)));
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+    }
+
+    /** Command "time N", which limits automated players to N
+     *  milliseconds per move (or removes the limit if N is 0), where N is
+     *  the first group of MAT.  Limits above MAX_TIME_BUDGET are reduced
+     *  to it. */
+    private void doTime(Matcher mat) {
+        try {
+            _timeBudget = Math.min(Long.parseLong(mat.group(1)),
+                                   MAX_TIME_BUDGET);
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+    }
+
+    /** Command "nodes N", which limits automated players to searching N
+     *  positions per move (or removes the limit if N is 0), where N is
+     *  the first group of MAT. */
+    private void doNodes(Matcher mat) {
+        try {
+            _nodeBudget = Long.parseLong(mat.group(1));
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+    }
+
+    /** Command "set NAME VALUE", which sets the search option NAME (the
+     *  first group of MAT) to VALUE (the second). */
+    private void doSet(Matcher mat) {
+        _options.set(mat.group(1), mat.group(2));
+    }
+
     /** Execute a move command matched in MAT. */
     private void doMove(Matcher mat) {
         _board.makeMove(Move.mv(mat.group(0)));
@@ -297,9 +410,45 @@ final class Controller {
         System.out.printf("===%n%s===%n", _board);
     }
 
+    /** Command "perft N", which prints the number of sequences of N moves
+     *  from the current position, broken down by first move, where N is
+     *  the first group of MAT. */
+    private void doPerft(Matcher mat) {
+        int depth;
+        try {
+            depth = Integer.parseInt(mat.group(1));
+        } catch (NumberFormatException excp) {
+            throw error("number too large");
+        }
+        if (depth > MAX_PERFT_DEPTH) {
+            throw error("perft depth must be at most %d", MAX_PERFT_DEPTH);
+        }
+        Perft.divide(_board.snapshot(), depth, System.out);
+    }
+
+    /** Command "bench [N]", which searches the built-in benchmark
+     *  positions to depth N (the first group of MAT, default
+     *  Bench.DEFAULT_DEPTH) with the current search options and weights,
+     *  and prints the total positions searched and the rate. */
+    private void doBench(Matcher mat) {
+        int depth = Bench.DEFAULT_DEPTH;
+        if (mat.group(1) != null) {
+            try {
+                depth = Integer.parseInt(mat.group(1));
+            } catch (NumberFormatException excp) {
+                throw error("number too large");
+            }
+        }
+        if (depth < 1 || depth > MAX_BENCH_DEPTH) {
+            throw error("bench depth must be from 1 to %d", MAX_BENCH_DEPTH);
+        }
+        Bench.run(depth, _options, _board.weights(), System.out);
+    }
+
     /** Undo back to before my last move, if there was one (otherwise does
      *  nothing). */
     private void doUndo(Matcher unused) {
+        stopThinking();
         if (_board.moveCount() > 1) {
             _board.undo();
             _board.undo();
@@ -311,6 +460,34 @@ final class Controller {
     /** The board. */
     private Board _board = new Board();
 
+    /** The deepest perft allowed. */
+    private static final int MAX_PERFT_DEPTH = 16;
+
+    /** The deepest bench search allowed. */
+    private static final int MAX_BENCH_DEPTH = 12;
+
+    /** The default size of the transposition table, in megabytes. */
+    static final int DEFAULT_TABLE_MB = 16;
+
+    /** The transposition table used by automated players. */
+    private final TranspositionTable _table =
+        new TranspositionTable(DEFAULT_TABLE_MB);
+
+    /** The largest time per move, in milliseconds (one week). */
+    private static final long MAX_TIME_BUDGET = 7L * 24 * 60 * 60 * 1000;
+
+    /** Time per move for automated players in milliseconds, or 0. */
+    private long _timeBudget;
+
+    /** Positions searched per move by automated players, or 0. */
+    private long _nodeBudget;
+
+    /** Options for searches by automated players. */
+    private final SearchOptions _options = new SearchOptions();
+
+    /** Statistics of the last search by an automated player, or null. */
+    private SearchStats _searchStats;
+
     /** The winning side of the current game. */
     private Piece _winner;
 
@@ -44,6 +44,10 @@ class GUI extends TopLevel implements View, Reporter {
                  new LayoutSpec("x", 0, "y", 0,
                                 "height", 1,
                                 "width", 3));
+        addLabel("", "SearchInfo",
+                 new LayoutSpec("x", 0, "y", 2,
+                                "height", 1,
+                                "width", 3));
 
     }
 
@@ -137,6 +141,18 @@ class GUI extends TopLevel implements View, Reporter {
     public void reportMove(Move unused) {
     }
 
+    @Override
+    public void reportInfo(SearchStats stats) {
+        StringBuilder pv = new StringBuilder();
+        for (Move mv : stats.pv()) {
+            pv.append(' ').append(mv);
+        }
+        setLabel("SearchInfo",
+                 String.format("Depth %d, %d nodes, %d ms, %d nodes/s, "
+                               + "PV:%s", stats.depth(), stats.nodes(),
+                               stats.millis(), stats.nodesPerSecond(), pv));
+    }
+
     /** The board widget. */
     private BoardWidget _widget;
 
@@ -15,18 +15,31 @@ import ucb.util.CommandArgs;
  */
 public class Main {
 
-    /** The main program.  ARGS may contain the option --display. */
+    /** The main program.  ARGS may contain the option --display.  With
+     *  the option --bench, runs the search benchmark (see Bench) and
+     *  exits. */
     public static void main(String... args) {
 
         CommandArgs options =
-            new CommandArgs("--display --testing --strict --log={0,1} --={0,2}",
-                            args);
+            new CommandArgs("--display --testing --strict --log={0,1} "
+                            + "--weights={0,1} --bench --={0,2}", args);
         if (!options.ok()) {
             System.err.println("Usage: java tablut.Main [--display]"
-                               + " [--log=FILE] [--strict] [INPUT [OUTPUT]]");
+                               + " [--log=FILE] [--weights=FILE] [--strict]"
+                               + " [--bench] [INPUT [OUTPUT]]");
             System.exit(1);
         }
 
+        if (options.contains("--bench")) {
+            Weights weights = Weights.DEFAULT;
+            if (options.contains("--weights")) {
+                weights = Weights.read(options.getFirst("--weights"));
+            }
+            Bench.run(Bench.DEFAULT_DEPTH, new SearchOptions(), weights,
+                      System.out);
+            System.exit(0);
+        }
+
         List<String> files = options.get("--");
         if (!files.isEmpty()) {
             try {
@@ -95,7 +108,15 @@ public class Main {
                 throw error("Could not open log file");
             }
         }
-        return new Controller(view, log, reporter, manualPlayer,
-                              new AI(), options.contains("--strict"));
+        Controller result =
+            new Controller(view, log, reporter, manualPlayer, new AI(),
+                           options.contains("--strict"));
+        if (options.contains("--weights")) {
+            result.setWeights(Weights.read(options.getFirst("--weights")));
+        }
+        if (gui != null) {
+            result.searchOptions().set("info", "on");
+        }
+        return result;
     }
 }
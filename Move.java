@@ -35,6 +35,25 @@ final class Move {
         return _to;
     }
 
+    /** Return my index: the index of from() shifted left FROM_SHIFT bits,
+     *  ORed with the index of to().  Indices are less than MAX_INDEX and
+     *  are used to hold moves in primitive arrays. */
+    int index() {
+        return _index;
+    }
+
+    /** Return the unique Move whose index() is INDEX, or null if there is
+     *  no such move. */
+    static Move mv(int index) {
+        return MOVES[index >> FROM_SHIFT][index & TO_MASK];
+    }
+
+    /** Return the index() of the move from the square with index FROM to
+     *  the square with index TO. */
+    static int index(int from, int to) {
+        return from << FROM_SHIFT | to;
+    }
+
     /** Return the unique Move FROM-TO, or null if this is not a valid
      *  move. */
     static Move mv(Square from, Square to) {
@@ -92,6 +111,7 @@ final class Move {
     /** Construct the Move FROM-TO. */
     private Move(Square from, Square to) {
         _from = from; _to = to;
+        _index = index(from.index(), to.index());
         if (_from.col() == _to.col()) {
             _str = String.format("%s-%c", from, (char) to.row() + '1');
         } else {
@@ -109,6 +129,12 @@ final class Move {
         return (_from.index() << 6) + _to.index();
     }
 
+    /** The shift and mask that separate the two squares of an index(). */
+    private static final int FROM_SHIFT = 7, TO_MASK = (1 << FROM_SHIFT) - 1;
+
+    /** An upper bound on the index() of any Move. */
+    static final int MAX_INDEX = NUM_SQUARES << FROM_SHIFT;
+
     /** The cache of all Moves created. */
     private static final Move[][] MOVES = new Move[NUM_SQUARES][NUM_SQUARES];
 
@@ -133,6 +159,8 @@ final class Move {
 
     /** The components of this Move. */
     private final Square _from, _to;
+    /** My index(). */
+    private final int _index;
     /** The printed form of this Move. */
     private String _str;
     /**  A utility Matcher for moves, using MOVE_PATTERN. */
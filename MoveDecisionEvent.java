@@ -0,0 +1,40 @@
+package tablut;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event for an AI's choice of a move.  Its
+ *  duration is the time from the request for a move to the choice.
+ *  @author Ryan Chen
+ */
+@Name("tablut.MoveDecision")
+@Label("Move Decision")
+@Category({ "Tablut", "Search" })
+@Description("An AI choosing a move")
+@StackTrace(false)
+final class MoveDecisionEvent extends Event {
+
+    /** The side that moved. */
+    @Label("Side")
+    String side;
+
+    /** The move chosen. */
+    @Label("Move")
+    String move;
+
+    /** The depth of the last completed iteration of the search. */
+    @Label("Depth")
+    int depth;
+
+    /** The positions searched by the main search thread. */
+    @Label("Nodes")
+    long nodes;
+
+    /** True iff the move came from searching on the opponent's time. */
+    @Label("Ponder Hit")
+    boolean ponderHit;
+}
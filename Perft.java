@@ -0,0 +1,78 @@
+package tablut;
+
+import java.io.PrintStream;
+
+import static tablut.Board.MAX_MOVES;
+import static tablut.Utils.NANOS_PER_MILLI;
+import static tablut.Utils.NANOS_PER_SEC;
+
+/** Move-path enumeration ("perft") for checking the correctness and
+ *  speed of move generation, making, and undoing moves.
+ *  @author Ryan Chen
+ */
+final class Perft {
+
+    /** Return the number of sequences of DEPTH legal moves starting from
+     *  the current position of BOARD.  A sequence that ends the game
+     *  counts only if the game ends on its last move.  BOARD is restored
+     *  to its original position on return. */
+    static long perft(Board board, int depth) {
+        return count(board, depth, new int[depth + 1][MAX_MOVES]);
+    }
+
+    /** As for perft(BOARD, DEPTH), but also print the count for each
+     *  first move on OUT, followed by the total, the elapsed time, and
+     *  the rate in nodes (move sequences) per second.  Return the
+     *  total. */
+    static long divide(Board board, int depth, PrintStream out) {
+        long start = System.nanoTime();
+        int[][] moves = new int[depth + 1][MAX_MOVES];
+        long total = 0;
+        if (depth == 0) {
+            total = 1;
+        } else if (board.winner() == null) {
+            int[] list = moves[depth];
+            int n = board.legalMoves(board.turn(), list);
+            for (int i = 0; i < n; i += 1) {
+                Move mv = Move.mv(list[i]);
+                board.makeMove(mv);
+                long count = count(board, depth - 1, moves);
+                board.undo();
+                out.printf("%s: %d%n", mv, count);
+                total += count;
+            }
+        }
+        long nanos = Math.max(System.nanoTime() - start, 1);
+        out.printf("perft %d: %d nodes, %d ms, %.0f nodes/s%n", depth, total,
+                   nanos / NANOS_PER_MILLI,
+                   (double) total * NANOS_PER_SEC / nanos);
+        return total;
+    }
+
+    /** Return perft(BOARD, DEPTH), using MOVES[d] to hold the moves at
+     *  depth d. */
+    private static long count(Board board, int depth, int[][] moves) {
+        if (depth == 0) {
+            return 1;
+        } else if (board.winner() != null) {
+            return 0;
+        }
+        int[] list = moves[depth];
+        int n = board.legalMoves(board.turn(), list);
+        if (depth == 1) {
+            return n;
+        }
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(Move.mv(list[i]));
+            total += count(board, depth - 1, moves);
+            board.undo();
+        }
+        return total;
+    }
+
+    /** Perft is not meant to be instantiated. */
+    private Perft() {
+    }
+
+}
@@ -0,0 +1,80 @@
+package tablut;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import ucb.junit.textui;
+
+import static tablut.Piece.*;
+
+/** Regression tests for move generation, comparing Perft.perft counts
+ *  against reference values.  Positions other than the initial one are
+ *  set up as the "toggle" command would.
+ *  @author Ryan Chen
+ */
+public class PerftTests {
+
+    /** Run the JUnit tests in this class. */
+    public static void main(String[] ignored) {
+        textui.runClasses(PerftTests.class);
+    }
+
+    /** Return a new Board in the initial position after toggling each of
+     *  SQUARES in turn, as for the "toggle" command. */
+    private static Board toggled(String... squares) {
+        Board board = new Board();
+        for (String name : squares) {
+            Square sq = Square.sq(name);
+            Piece piece;
+            switch (board.get(sq)) {
+            case EMPTY: piece = WHITE; break;
+            case WHITE: piece = KING; break;
+            case KING: piece = BLACK; break;
+            default:
+                piece = EMPTY; break;
+            }
+            board.put(piece, sq);
+            board.clearUndo();
+        }
+        return board;
+    }
+
+    /** Check that perft(BOARD, d) is EXPECTED[d - 1] for each d, and that
+     *  BOARD is unchanged afterwards. */
+    private static void checkPerft(Board board, long... expected) {
+        String before = board.encodedBoard();
+        for (int d = 1; d <= expected.length; d += 1) {
+            assertEquals("depth " + d, expected[d - 1], Perft.perft(board, d));
+            assertEquals(before, board.encodedBoard());
+        }
+    }
+
+    @Test
+    public void initialPosition() {
+        checkPerft(new Board(), 80, 4400, 353200, 19913864);
+    }
+
+    @Test
+    public void afterCapturingMove() {
+        Board board = new Board();
+        board.makeMove(Move.mv("i6-f"));
+        checkPerft(board, 50, 4032, 209610);
+    }
+
+    @Test
+    public void kingOffThrone() {
+        checkPerft(toggled("e5", "e5", "e3"), 80, 4400, 340926);
+    }
+
+    @Test
+    public void missingAttackers() {
+        checkPerft(toggled("a4", "a5", "a6", "b5", "d1", "e1", "f1", "e2"),
+                   40, 2518, 107566);
+    }
+
+    @Test
+    public void kingNearlySurrounded() {
+        checkPerft(toggled("e6", "e6", "e4", "e4", "d5", "d5",
+                           "f5", "f5", "f5"),
+                   106, 3516, 369432);
+    }
+}
@@ -27,6 +27,12 @@ abstract class Player {
     /** Return true iff I am a manual (human or non-automated) player. */
     abstract boolean isManual();
 
+    /** Stop any work I am doing between my moves, such as searching on
+     *  my opponent's time, and wait for it to end.  Does nothing by
+     *  default. */
+    void stopThinking() {
+    }
+
     /** A factory method that returns a Player with my concrete type that
      *  plays the side indicated by PIECE in a game controlled by
      *  CONTROLLER.  This typically will call the constructor for the class
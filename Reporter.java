@@ -16,5 +16,9 @@ interface Reporter {
     /** Display MOVE as needed. */
     void reportMove(Move move);
 
+    /** Display STATS, the statistics of an AI's search for a move, as
+     *  needed. */
+    void reportInfo(SearchStats stats);
+
 }
 
@@ -0,0 +1,49 @@
+package tablut;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event for one iteration of an AI's iterative
+ *  deepening search.  Its duration is the time the iteration took.
+ *  @author Ryan Chen
+ */
+@Name("tablut.SearchIteration")
+@Label("Search Iteration")
+@Category({ "Tablut", "Search" })
+@Description("One iteration of iterative deepening")
+@StackTrace(false)
+final class SearchIterationEvent extends Event {
+
+    /** The depth searched. */
+    @Label("Depth")
+    int depth;
+
+    /** The positions searched by this iteration. */
+    @Label("Nodes")
+    long nodes;
+
+    /** The positions searched by this iteration's quiescence searches. */
+    @Label("Quiescence Nodes")
+    long qnodes;
+
+    /** The value found, positive when it favors white. */
+    @Label("Value")
+    int value;
+
+    /** The move chosen by the iteration. */
+    @Label("Best Move")
+    String bestMove;
+
+    /** True iff the iteration ran out of time or nodes, in which case its
+     *  result was discarded. */
+    @Label("Aborted")
+    boolean aborted;
+
+    /** 0 for a main search, or the number of the helper thread. */
+    @Label("Helper")
+    int helper;
+}
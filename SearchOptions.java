@@ -0,0 +1,185 @@
+package tablut;
+
+import static tablut.Utils.*;
+
+/** Switches controlling the techniques used by AI searches, which may be
+ *  changed between moves (with the "set NAME VALUE" command) so that
+ *  variants can be compared in self-play.
+ *  @author Ryan Chen
+ */
+final class SearchOptions {
+
+    /** Return true iff searches use null-move pruning. */
+    boolean nullMove() {
+        return _nullMove;
+    }
+
+    /** Return true iff searches reduce the depth of late quiet moves. */
+    boolean lateMoveReductions() {
+        return _lateMoveReductions;
+    }
+
+    /** Return true iff searches skip hopeless quiet moves near the
+     *  leaves. */
+    boolean futility() {
+        return _futility;
+    }
+
+    /** Return the amount per ply of remaining depth by which the static
+     *  score must miss the window for futility pruning. */
+    int futilityMargin() {
+        return _futilityMargin;
+    }
+
+    /** Return true iff searches drop into quiescence search near the
+     *  leaves when the static score is far below the window. */
+    boolean razoring() {
+        return _razoring;
+    }
+
+    /** Return the amount per ply of remaining depth by which the static
+     *  score must miss the window for razoring. */
+    int razorMargin() {
+        return _razorMargin;
+    }
+
+    /** Return true iff searches cut nodes whose shallow search beats the
+     *  window by a margin. */
+    boolean probCut() {
+        return _probCut;
+    }
+
+    /** Return the amount by which a shallow search must beat the window
+     *  for ProbCut. */
+    int probCutMargin() {
+        return _probCutMargin;
+    }
+
+    /** Return true iff AIs search ahead while their opponents choose
+     *  moves. */
+    boolean ponder() {
+        return _ponder;
+    }
+
+    /** Return true iff the statistics of each search are reported. */
+    boolean info() {
+        return _info;
+    }
+
+    /** Return the number of threads that search at once. */
+    int threads() {
+        return _threads;
+    }
+
+    /** Set the option called NAME to VALUE, raising an
+     *  IllegalArgumentException if either is invalid. */
+    void set(String name, String value) {
+        switch (name) {
+        case "nullmove":
+            _nullMove = flag(value);
+            break;
+        case "lmr":
+            _lateMoveReductions = flag(value);
+            break;
+        case "futility":
+            _futility = flag(value);
+            break;
+        case "futilitymargin":
+            _futilityMargin = margin(value);
+            break;
+        case "razoring":
+            _razoring = flag(value);
+            break;
+        case "razormargin":
+            _razorMargin = margin(value);
+            break;
+        case "probcut":
+            _probCut = flag(value);
+            break;
+        case "probcutmargin":
+            _probCutMargin = margin(value);
+            break;
+        case "ponder":
+            _ponder = flag(value);
+            break;
+        case "info":
+            _info = flag(value);
+            break;
+        case "threads":
+            _threads = threads(value);
+            break;
+        default:
+            throw error("unknown search option: %s", name);
+        }
+    }
+
+    /** Return the boolean denoted by VALUE ("on" or "off"). */
+    private static boolean flag(String value) {
+        switch (value) {
+        case "on":
+            return true;
+        case "off":
+            return false;
+        default:
+            throw error("expected on or off: %s", value);
+        }
+    }
+
+    /** Return the margin denoted by VALUE, a non-negative integer less
+     *  than MAX_MARGIN. */
+    private static int margin(String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < MAX_MARGIN) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to report the error. */
+        }
+        throw error("expected a margin below %d: %s", MAX_MARGIN, value);
+    }
+
+    /** Return the thread count denoted by VALUE, an integer from 1 to
+     *  MAX_THREADS. */
+    private static int threads(String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result >= 1 && result <= MAX_THREADS) {
+                return result;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to report the error. */
+        }
+        throw error("expected 1 to %d threads: %s", MAX_THREADS, value);
+    }
+
+    /** The largest number of search threads. */
+    private static final int MAX_THREADS = 256;
+
+    /** An upper bound on margins, keeping window arithmetic far from
+     *  overflow. */
+    private static final int MAX_MARGIN = 1 << 20;
+
+    /** True iff null-move pruning is enabled. */
+    private boolean _nullMove = true;
+    /** True iff late-move reductions are enabled. */
+    private boolean _lateMoveReductions = true;
+    /** True iff futility pruning is enabled. */
+    private boolean _futility = true;
+    /** The futility margin per ply. */
+    private int _futilityMargin = 60;
+    /** True iff razoring is enabled. */
+    private boolean _razoring = true;
+    /** The razoring margin per ply. */
+    private int _razorMargin = 120;
+    /** True iff ProbCut is enabled. */
+    private boolean _probCut = true;
+    /** The ProbCut margin. */
+    private int _probCutMargin = 100;
+    /** The number of search threads. */
+    private int _threads = 1;
+    /** True iff pondering is enabled. */
+    private boolean _ponder;
+    /** True iff search statistics are reported. */
+    private boolean _info;
+}
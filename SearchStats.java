@@ -0,0 +1,132 @@
+package tablut;
+
+import java.util.Collections;
+import java.util.List;
+
+import static tablut.Utils.NANOS_PER_MILLI;
+import static tablut.Utils.NANOS_PER_SEC;
+
+/** The statistics of one search by an AI: the work it did, how well its
+ *  move ordering worked, and the line of play it expects.  AIs report
+ *  these through Reporter.reportInfo, and they are also available from
+ *  AI.searchStats and Controller.searchStats.  SearchStats are
+ *  immutable.
+ *  @author Ryan Chen
+ */
+final class SearchStats {
+
+    /** Statistics of a search that completed iterations to DEPTH,
+     *  reached SELDEPTH plies from the root (including quiescence
+     *  search), visited NODES positions, QNODES of them in quiescence
+     *  searches, had CUTOFFS beta cutoffs, FIRSTMOVECUTOFFS of them on the
+     *  first move tried, probed the transposition table PROBES times with
+     *  HITS hits, took NANOS nanoseconds, and found principal variation
+     *  PV. */
+    SearchStats(int depth, int selDepth, long nodes, long qnodes,
+                long cutoffs, long firstMoveCutoffs, long probes, long hits,
+                long nanos, List<Move> pv) {
+        _depth = depth;
+        _selDepth = selDepth;
+        _nodes = nodes;
+        _qnodes = qnodes;
+        _cutoffs = cutoffs;
+        _firstMoveCutoffs = firstMoveCutoffs;
+        _probes = probes;
+        _hits = hits;
+        _nanos = nanos;
+        _pv = Collections.unmodifiableList(pv);
+    }
+
+    /** Return the depth of the last completed iteration. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the greatest number of plies from the root searched,
+     *  including quiescence search. */
+    int selDepth() {
+        return _selDepth;
+    }
+
+    /** Return the number of positions searched. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of positions searched by quiescence search. */
+    long qnodes() {
+        return _qnodes;
+    }
+
+    /** Return the number of beta cutoffs. */
+    long cutoffs() {
+        return _cutoffs;
+    }
+
+    /** Return the number of beta cutoffs caused by the first move
+     *  tried. */
+    long firstMoveCutoffs() {
+        return _firstMoveCutoffs;
+    }
+
+    /** Return the number of transposition table probes. */
+    long tableProbes() {
+        return _probes;
+    }
+
+    /** Return the number of transposition table probes that found an
+     *  entry. */
+    long tableHits() {
+        return _hits;
+    }
+
+    /** Return the time taken, in milliseconds. */
+    long millis() {
+        return _nanos / NANOS_PER_MILLI;
+    }
+
+    /** Return the rate of search in positions per second. */
+    long nodesPerSecond() {
+        return _nodes * NANOS_PER_SEC / Math.max(_nanos, 1);
+    }
+
+    /** Return the principal variation: the moves the search expects from
+     *  the root, starting with its choice.  May be empty. */
+    List<Move> pv() {
+        return _pv;
+    }
+
+    /** Return me as an "info" line: the word "info" followed by pairs of
+     *  names and values, ending with "pv" and the moves of the principal
+     *  variation. */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("info depth %d seldepth %d nodes %d "
+                                    + "qnodes %d nps %d time %d cutoffs %d "
+                                    + "firstcutoffs %d tthits %d "
+                                    + "ttprobes %d pv",
+                                    _depth, _selDepth, _nodes, _qnodes,
+                                    nodesPerSecond(), millis(), _cutoffs,
+                                    _firstMoveCutoffs, _hits, _probes));
+        for (Move mv : _pv) {
+            result.append(' ').append(mv);
+        }
+        return result.toString();
+    }
+
+    /** The depth of the last completed iteration. */
+    private final int _depth;
+    /** The greatest number of plies from the root searched. */
+    private final int _selDepth;
+    /** Positions searched, and those searched by quiescence search. */
+    private final long _nodes, _qnodes;
+    /** Beta cutoffs, and those caused by the first move tried. */
+    private final long _cutoffs, _firstMoveCutoffs;
+    /** Transposition table probes and hits. */
+    private final long _probes, _hits;
+    /** The time taken, in nanoseconds. */
+    private final long _nanos;
+    /** The principal variation. */
+    private final List<Move> _pv;
+}
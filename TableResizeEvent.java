@@ -0,0 +1,35 @@
+package tablut;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event for the allocation of a transposition
+ *  table, on creation or resizing.  Its duration is the time taken to
+ *  allocate the new table.
+ *  @author Ryan Chen
+ */
+@Name("tablut.TableResize")
+@Label("Transposition Table Resize")
+@Category({ "Tablut", "Search" })
+@Description("Allocation of a transposition table")
+@StackTrace(false)
+final class TableResizeEvent extends Event {
+
+    /** The number of entries before, or 0 for a new table. */
+    @Label("Old Entries")
+    int oldEntries;
+
+    /** The number of entries after. */
+    @Label("New Entries")
+    int newEntries;
+
+    /** The size of the new table. */
+    @Label("Size")
+    @DataAmount
+    long bytes;
+}
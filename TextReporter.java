@@ -21,4 +21,9 @@ class TextReporter implements Reporter {
     public void reportMove(Move move) {
         System.out.printf("* %s%n", move);
     }
+
+    @Override
+    public void reportInfo(SearchStats stats) {
+        System.out.println(stats);
+    }
 }
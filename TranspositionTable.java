@@ -0,0 +1,190 @@
+package tablut;
+
+import java.util.Arrays;
+
+import static tablut.Utils.*;
+
+/** A fixed-size table of search results keyed by Board.hash().  Each
+ *  entry records the depth searched, the kind of bound the score is, the
+ *  score, and the index() of the best move found.  The number of entries
+ *  is a power of two, so that the low bits of a key select its slot.
+ *
+ *  An entry is held as two longs: its data word, and its key XORed with
+ *  its data word.  A reader accepts an entry only if XORing the two words
+ *  again yields the key it is looking for, so an entry torn by writers
+ *  on other threads is simply treated as a miss, and no locking is
+ *  needed.  Searches count their own probes and hits and report them
+ *  with count, so that threads sharing the table do not contend for the
+ *  counters.
+ *  @author Ryan Chen
+ */
+final class TranspositionTable {
+
+    /** Bound kinds: the score is exact, a lower bound (the search failed
+     *  high), or an upper bound (the search failed low). */
+    static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    /** The size in bytes of one entry. */
+    static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /** A new table of at most MEGABYTES megabytes (at least one entry). */
+    TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /** Replace my contents with an empty table of at most MEGABYTES
+     *  megabytes (at least one entry).  The new arrays replace the old in
+     *  a single write, so a search still running on another thread sees
+     *  either the old table or the new one, never a mixture. */
+    void resize(int megabytes) {
+        if (megabytes < 0) {
+            throw error("table size must be non-negative");
+        }
+        TableResizeEvent event = new TableResizeEvent();
+        event.begin();
+        int oldSize = _slots == null ? 0 : size();
+        long entries = Math.max(1, ((long) megabytes << 20) / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(entries, MAX_SIZE));
+        _slots = new Slots(size);
+        synchronized (this) {
+            _probes = _hits = 0;
+        }
+        if (event.shouldCommit()) {
+            event.oldEntries = oldSize;
+            event.newEntries = size;
+            event.bytes = (long) size * ENTRY_BYTES;
+            event.commit();
+        }
+    }
+
+    /** Remove all entries and reset the statistics. */
+    void clear() {
+        Slots slots = _slots;
+        Arrays.fill(slots.keys, 0);
+        Arrays.fill(slots.data, 0);
+        synchronized (this) {
+            _probes = _hits = 0;
+        }
+    }
+
+    /** Return the number of entries I can hold. */
+    int size() {
+        return _slots.keys.length;
+    }
+
+    /** Return the data word stored for KEY, or 0 if there is none.  The
+     *  fields of a non-zero result are extracted by depth, bound, score,
+     *  and move. */
+    long probe(long key) {
+        Slots slots = _slots;
+        int i = (int) key & slots.mask;
+        long data = slots.data[i];
+        if (data != 0 && (slots.keys[i] ^ data) == key) {
+            return data;
+        }
+        return 0;
+    }
+
+    /** Record that a search of the position whose hash is KEY to DEPTH
+     *  produced SCORE, which is a bound of kind BOUND, and that MOVE (an
+     *  index() value, or 0 if none) was best.  An entry for another
+     *  position is always replaced; an entry for the same position is kept
+     *  if it came from a deeper search. */
+    void store(long key, int depth, int bound, int score, int move) {
+        Slots slots = _slots;
+        int i = (int) key & slots.mask;
+        long old = slots.data[i];
+        if (old != 0 && (slots.keys[i] ^ old) == key
+            && depth(old) > depth) {
+            return;
+        }
+        long data = (score & SCORE_MASK)
+            | (long) (move & MOVE_MASK) << MOVE_SHIFT
+            | (long) (depth & DEPTH_MASK) << DEPTH_SHIFT
+            | (long) bound << BOUND_SHIFT;
+        slots.data[i] = data;
+        slots.keys[i] = key ^ data;
+    }
+
+    /** Return the depth field of DATA. */
+    static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound field of DATA (EXACT, LOWER, or UPPER). */
+    static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT);
+    }
+
+    /** Return the score field of DATA. */
+    static int score(long data) {
+        return (int) data;
+    }
+
+    /** Return the move field of DATA. */
+    static int move(long data) {
+        return (int) (data >>> MOVE_SHIFT) & MOVE_MASK;
+    }
+
+    /** Add PROBES probes, of which HITS succeeded, to my statistics. */
+    synchronized void count(long probes, long hits) {
+        _probes += probes;
+        _hits += hits;
+    }
+
+    /** Return the number of probes counted since I was last cleared. */
+    synchronized long probes() {
+        return _probes;
+    }
+
+    /** Return the number of successful probes counted since I was last
+     *  cleared. */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Return the fraction of probes counted since I was last cleared
+     *  that succeeded, or 0 if there were none. */
+    synchronized double hitRate() {
+        return _probes == 0 ? 0.0 : (double) _hits / _probes;
+    }
+
+    /** Layout of a data word: the score in the low 32 bits, then the move
+     *  index, the depth, and the bound, which is never 0 in a stored
+     *  entry. */
+    private static final int MOVE_SHIFT = 32, DEPTH_SHIFT = 46,
+        BOUND_SHIFT = 54;
+    /** Masks for the fields of a data word. */
+    private static final int
+        MOVE_MASK = (1 << (DEPTH_SHIFT - MOVE_SHIFT)) - 1,
+        DEPTH_MASK = (1 << (BOUND_SHIFT - DEPTH_SHIFT)) - 1;
+    /** Mask for the score field of a data word. */
+    private static final long SCORE_MASK = 0xffffffffL;
+    /** The largest number of entries in a table. */
+    private static final int MAX_SIZE = 1 << 30;
+
+    /** The arrays holding a table's entries, with the mask that selects a
+     *  slot from a key.  Its fields are final, so a thread that reads a
+     *  reference to a Slots sees them fully initialized. */
+    private static final class Slots {
+        /** Arrays of SIZE slots, a power of two. */
+        Slots(int size) {
+            keys = new long[size];
+            data = new long[size];
+            mask = size - 1;
+        }
+
+        /** Each key XORed with its data word. */
+        final long[] keys;
+        /** The data words. */
+        final long[] data;
+        /** The number of slots - 1. */
+        final int mask;
+    }
+
+    /** My entries.  Volatile, so that a search on another thread sees the
+     *  Slots installed by the latest resize. */
+    private volatile Slots _slots;
+    /** Probe statistics. */
+    private long _probes, _hits;
+}
@@ -4,6 +4,9 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 import static tablut.Piece.BLACK;
 
+import java.util.HashSet;
+import java.util.Random;
+
 import ucb.junit.textui;
 
 /** The suite of all JUnit tests for the enigma package.
@@ -38,6 +41,306 @@ public class UnitTest {
         assertEquals(board.get(5, 0), Piece.BLACK);
     }
 
-}
+    @Test
+    public void hashTest() {
+        Board board = new Board();
+        long initial = board.hash();
+        board.makeMove(Move.mv("d1-c"));
+        board.makeMove(Move.mv("e4-c"));
+        board.makeMove(Move.mv("f1-g"));
+        long reached = board.hash();
+        board.undo();
+        board.undo();
+        board.undo();
+        assertEquals(initial, board.hash());
+        board.makeMove(Move.mv("f1-g"));
+        board.makeMove(Move.mv("e4-c"));
+        board.makeMove(Move.mv("d1-c"));
+        assertEquals(reached, board.hash());
+        assertEquals(new Board(board).hash(), board.hash());
+    }
 
+    @Test
+    public void repetitionTest() {
+        Board board = new Board();
+        board.makeMove(Move.mv("d1-c"));
+        board.makeMove(Move.mv("e3-d"));
+        board.makeMove(Move.mv("c1-d"));
+        assertNull(board.winner());
+        board.makeMove(Move.mv("d3-e"));
+        assertTrue(board.repeatedPosition());
+        assertEquals(Piece.BLACK, board.winner());
+        board.undo();
+        assertFalse(board.repeatedPosition());
+        assertNull(board.winner());
+    }
 
+    @Test
+    public void longRepetitionWindowTest() {
+        Board board = new Board();
+        Random random = new Random(1);
+        HashSet<Long> seen = new HashSet<>();
+        seen.add(board.hash());
+        int[] moves = new int[Board.MAX_MOVES];
+        Move last = null;
+        while (board.moveCount() < 300) {
+            int n = board.legalMoves(board.turn(), moves);
+            int start = random.nextInt(n);
+            last = null;
+            for (int k = 0; k < n && last == null; k += 1) {
+                Move mv = Move.mv(moves[(start + k) % n]);
+                int pieces = board.pieceCount(BLACK)
+                    + board.pieceCount(Piece.WHITE);
+                board.makeMove(mv);
+                if (board.winner() == null
+                    && board.pieceCount(BLACK)
+                       + board.pieceCount(Piece.WHITE) == pieces
+                    && seen.add(board.hash())) {
+                    last = mv;
+                } else {
+                    board.undo();
+                }
+            }
+            assertNotNull(last);
+        }
+        board.undo();
+        board.makeMove(last);
+        assertFalse(board.repeatedPosition());
+        assertNull(board.winner());
+    }
+
+    @Test
+    public void nullMoveRepetitionTest() {
+        Board board = new Board();
+        long initial = board.hash();
+        board.makeNullMove();
+        for (String move : new String[] { "c5-4", "d1-2", "c4-5" }) {
+            board.makeMove(Move.mv(move));
+            assertNull(board.winner());
+        }
+        board.makeMove(Move.mv("d2-1"));
+        assertTrue(board.repeatedPosition());
+        assertEquals(Piece.WHITE, board.winner());
+        for (int i = 0; i < 4; i += 1) {
+            board.undo();
+        }
+        board.undoNullMove();
+        assertEquals(initial, board.hash());
+        board.makeMove(Move.mv("d1-2"));
+        board.makeMove(Move.mv("c5-4"));
+        board.makeMove(Move.mv("d2-1"));
+        board.makeMove(Move.mv("c4-5"));
+        assertTrue(board.repeatedPosition());
+    }
+
+    @Test
+    public void snapshotTest() {
+        Board board = new Board();
+        long initial = board.hash();
+        board.makeMove(Move.mv("d1-c"));
+        board.makeMove(Move.mv("e4-c"));
+        long shared = board.hash();
+        Board snap = board.snapshot();
+        assertEquals(shared, snap.hash());
+        board.undo();
+        board.makeMove(Move.mv("e3-c"));
+        snap.makeMove(Move.mv("f1-g"));
+        snap.undo();
+        assertEquals(shared, snap.hash());
+        snap.undo();
+        snap.undo();
+        assertEquals(initial, snap.hash());
+        assertEquals(0, snap.moveCount());
+        assertEquals(Piece.BLACK, board.get(2, 0));
+        assertEquals(Piece.WHITE, board.get(2, 2));
+        board.undo();
+        board.undo();
+        assertEquals(initial, board.hash());
+    }
+
+    @Test
+    public void transpositionTableTest() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1 << 16, table.size());
+        long key = new Board().hash();
+        int move = Move.mv("d1-c").index();
+        assertEquals(0, table.probe(key));
+        table.store(key, 3, TranspositionTable.LOWER, -17, move);
+        long entry = table.probe(key);
+        assertEquals(3, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(-17, TranspositionTable.score(entry));
+        assertEquals(move, TranspositionTable.move(entry));
+        table.store(key, 2, TranspositionTable.EXACT, 5, 0);
+        assertEquals(3, TranspositionTable.depth(table.probe(key)));
+        assertEquals(0, table.probe(key + table.size()));
+        table.count(4, 2);
+        assertEquals(0.5, table.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void scoreTest() {
+        Board board = new Board();
+        board.setWeights(Weights.read(new java.io.ByteArrayInputStream(
+            "black 1 white 0 # material\nroute 0 distance 0 adjacent 0"
+            .getBytes())));
+        assertEquals(-16 - 4 * 4, board.score());
+        board.makeMove(Move.mv("i6-f"));
+        board.makeMove(Move.mv("g5-6"));
+        assertEquals(-15 - 4 * 4, board.score());
+        board.undo();
+        assertEquals(-16 - 4 * 4, board.score());
+        Board fresh = new Board(board);
+        fresh.setWeights(board.weights());
+        assertEquals(fresh.score(), board.score());
+    }
+
+    @Test
+    public void tacticalMovesTest() {
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        assertEquals(0, board.tacticalMoves(BLACK, moves));
+        board.makeMove(Move.mv("i6-f"));
+        assertEquals(2, board.tacticalMoves(Piece.WHITE, moves));
+        assertEquals(Move.mv("g5-6").index(), moves[0]);
+        assertEquals(Move.mv("e7-f").index(), moves[1]);
+    }
+
+    @Test
+    public void searchStatsTest() {
+        Board board = Bench.position("middle");
+        String before = board.encodedBoard();
+        AI ai = new AI(board.turn(), null);
+        Move move = ai.findMove(board, 3, new TranspositionTable(1),
+                                new SearchOptions());
+        SearchStats stats = ai.searchStats();
+        assertEquals(before, board.encodedBoard());
+        assertEquals(3, stats.depth());
+        assertTrue(stats.selDepth() >= 3);
+        assertEquals(ai.nodes(), stats.nodes());
+        assertTrue(stats.qnodes() < stats.nodes());
+        assertTrue(stats.firstMoveCutoffs() <= stats.cutoffs());
+        assertTrue(stats.tableHits() <= stats.tableProbes());
+        assertEquals(move, stats.pv().get(0));
+        assertTrue(stats.pv().size() <= 3);
+        assertTrue(stats.toString().startsWith("info depth 3 seldepth "));
+        assertTrue(stats.toString().contains(" pv " + move));
+    }
+
+    @Test
+    public void probCutFullWindowTest() {
+        SearchOptions off = new SearchOptions();
+        off.set("probcut", "off");
+        for (String name : Bench.NAMES) {
+            Board board = Bench.position(name);
+            assertEquals(BLACK, board.turn());
+            int withProbCut = new AI(BLACK, null)
+                .searchValue(board, 5, new TranspositionTable(1),
+                             new SearchOptions());
+            int without = new AI(BLACK, null)
+                .searchValue(board, 5, new TranspositionTable(1), off);
+            assertEquals(name, without, withProbCut);
+        }
+    }
+
+    @Test
+    public void isTacticalTest() {
+        int[] moves = new int[Board.MAX_MOVES],
+            tactical = new int[Board.MAX_MOVES];
+        for (String name : Bench.NAMES) {
+            Board board = Bench.position(name);
+            for (Piece side : new Piece[] { BLACK, Piece.WHITE }) {
+                HashSet<Integer> expected = new HashSet<>();
+                int t = board.tacticalMoves(side, tactical);
+                for (int i = 0; i < t; i += 1) {
+                    expected.add(tactical[i]);
+                }
+                int n = board.legalMoves(side, moves);
+                board.markTactical(side);
+                for (int i = 0; i < n; i += 1) {
+                    assertEquals(name + " " + Move.mv(moves[i]),
+                                 expected.contains(moves[i]),
+                                 board.isTactical(moves[i]));
+                }
+            }
+        }
+    }
+
+    /** Return a Board with black to move, holding only the king on the
+     *  square named KING and white and black pieces on the squares named
+     *  in WHITES and BLACKS, which are separated by spaces. */
+    private static Board setUp(String king, String whites, String blacks) {
+        Board board = new Board();
+        for (Square sq : Square.SQUARE_LIST) {
+            board.put(Piece.EMPTY, sq);
+        }
+        board.put(Piece.KING, Square.sq(king));
+        for (String name : whites.split(" ")) {
+            board.put(Piece.WHITE, Square.sq(name));
+        }
+        for (String name : blacks.split(" ")) {
+            board.put(BLACK, Square.sq(name));
+        }
+        board.clearUndo();
+        return board;
+    }
+
+    @Test
+    public void sandwichCaptureTest() {
+        Board board = setUp("e5", "c3", "b3 d1");
+        board.makeMove(Move.mv("d1-3"));
+        assertEquals(Piece.EMPTY, board.get(Square.sq("c3")));
+        assertNull(board.winner());
+        board.undo();
+        assertEquals(Piece.WHITE, board.get(Square.sq("c3")));
+    }
+
+    @Test
+    public void throneCaptureTest() {
+        Board board = setUp("g7", "e6", "a7");
+        board.makeMove(Move.mv("a7-e"));
+        assertEquals(Piece.EMPTY, board.get(Square.sq("e6")));
+        board = setUp("e5", "e6", "a7");
+        board.makeMove(Move.mv("a7-e"));
+        assertEquals(Piece.WHITE, board.get(Square.sq("e6")));
+    }
+
+    @Test
+    public void kingInCastleCaptureTest() {
+        Board board = setUp("e5", "a1", "e4 d5 f5 a6");
+        board.makeMove(Move.mv("a6-e"));
+        assertEquals(BLACK, board.winner());
+        assertEquals(Piece.EMPTY, board.get(Square.sq("e5")));
+        board = setUp("e4", "a1", "d4 f4 a3");
+        board.makeMove(Move.mv("a3-e"));
+        assertEquals(BLACK, board.winner());
+        board = setUp("e4", "a1", "d4 a3");
+        board.makeMove(Move.mv("a3-e"));
+        assertNull(board.winner());
+        assertEquals(Piece.KING, board.get(Square.sq("e4")));
+    }
+
+    @Test
+    public void kingOutsideCastleCaptureTest() {
+        Board board = setUp("c7", "a1", "b7 d9");
+        board.makeMove(Move.mv("d9-7"));
+        assertEquals(BLACK, board.winner());
+        assertEquals(Piece.EMPTY, board.get(Square.sq("c7")));
+    }
+
+    /** A side cannot be left without moves by its own move alone, since
+     *  the piece moved can always move back, so the square it left is
+     *  filled after the move and before winner() is first asked for. */
+    @Test
+    public void noMovesLeftTest() {
+        Board board = setUp("e5", "b2 d2 c3", "c1");
+        board.makeMove(Move.mv("c1-2"));
+        board.put(Piece.WHITE, Square.sq("c1"));
+        assertEquals(Piece.WHITE, board.winner());
+        board.undo();
+        assertNull(board.winner());
+        assertEquals(BLACK, board.get(Square.sq("c1")));
+        assertEquals(BLACK, board.turn());
+    }
+
+}
@@ -32,4 +32,9 @@ class Utils {
         return result;
     }
 
+    /** Nanoseconds per millisecond. */
+    static final long NANOS_PER_MILLI = 1_000_000L;
+    /** Nanoseconds per second. */
+    static final long NANOS_PER_SEC = 1_000_000_000L;
+
 }
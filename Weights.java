@@ -0,0 +1,164 @@
+package tablut;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import static tablut.Board.SIZE;
+import static tablut.Piece.*;
+import static tablut.Square.*;
+import static tablut.Utils.*;
+
+/** The weights of the terms of Board.score(), the static evaluation used
+ *  by AIs.  Positive scores favor white.  The terms are material, the
+ *  number of open routes from the king to an edge, the king's distance
+ *  from the nearest edge, the number of black pieces next to the king,
+ *  and a piece-square table for each kind of piece.  Table entries, like
+ *  scores, favor white when positive.  Weights are immutable once
+ *  read.
+ *
+ *  A weights file consists of entries separated by whitespace, with
+ *  comments running from '#' to the end of a line.  An entry is a name
+ *  followed by its value: "black N", "white N", "route N", "distance N",
+ *  or "adjacent N" for the corresponding term, or "pst P" followed by the
+ *  81 entries of the table for the pieces denoted by P ("black", "white",
+ *  or "king"), listed from row 9 down to row 1 as in a board dump.
+ *  Entries that are not mentioned keep their values from DEFAULT.
+ *  @author Ryan Chen
+ */
+final class Weights {
+
+    /** The default weights. */
+    static final Weights DEFAULT = new Weights();
+
+    /** Return the weight of each black piece. */
+    int black() {
+        return _black;
+    }
+
+    /** Return the weight of each white piece other than the king. */
+    int white() {
+        return _white;
+    }
+
+    /** Return the weight of each open route from the king to an edge. */
+    int route() {
+        return _route;
+    }
+
+    /** Return the weight of each square between the king and the nearest
+     *  edge. */
+    int distance() {
+        return _distance;
+    }
+
+    /** Return the weight of each black piece next to the king. */
+    int adjacent() {
+        return _adjacent;
+    }
+
+    /** Return the value of P (which may be EMPTY) on the square with index
+     *  SQ. */
+    int pst(Piece p, int sq) {
+        return _pst[p.ordinal()][sq];
+    }
+
+    /** Return the weights in the file named NAME. */
+    static Weights read(String name) {
+        try (InputStream input = new FileInputStream(name)) {
+            return read(input);
+        } catch (IOException excp) {
+            throw error("could not read weights: %s", excp.getMessage());
+        }
+    }
+
+    /** Return the weights read from INPUT. */
+    static Weights read(InputStream input) {
+        Weights result = new Weights();
+        Scanner inp = new Scanner(input);
+        inp.useDelimiter("(\\s|#.*)+");
+        try {
+            while (inp.hasNext()) {
+                String name = inp.next();
+                switch (name) {
+                case "black":
+                    result._black = inp.nextInt();
+                    break;
+                case "white":
+                    result._white = inp.nextInt();
+                    break;
+                case "route":
+                    result._route = inp.nextInt();
+                    break;
+                case "distance":
+                    result._distance = inp.nextInt();
+                    break;
+                case "adjacent":
+                    result._adjacent = inp.nextInt();
+                    break;
+                case "pst":
+                    int[] table = result._pst[piece(inp.next()).ordinal()];
+                    for (int r = SIZE - 1; r >= 0; r -= 1) {
+                        for (int c = 0; c < SIZE; c += 1) {
+                            table[sq(c, r).index()] = inp.nextInt();
+                        }
+                    }
+                    break;
+                default:
+                    throw error("unknown weight: %s", name);
+                }
+            }
+        } catch (InputMismatchException excp) {
+            throw error("bad weights file: expected a number");
+        } catch (NoSuchElementException excp) {
+            throw error("bad weights file: truncated");
+        }
+        return result;
+    }
+
+    /** Return the kind of piece named NAME in a weights file. */
+    private static Piece piece(String name) {
+        switch (name) {
+        case "black":
+            return BLACK;
+        case "white":
+            return WHITE;
+        case "king":
+            return KING;
+        default:
+            throw error("unknown kind of piece: %s", name);
+        }
+    }
+
+    /** Default weights.  Black pieces gain a little on the squares next to
+     *  the edges, from which they block the king's routes. */
+    private Weights() {
+        for (Square s : SQUARE_LIST) {
+            int fromEdge = Math.min(Math.min(s.col(), SIZE - 1 - s.col()),
+                                    Math.min(s.row(), SIZE - 1 - s.row()));
+            if (fromEdge == 1) {
+                _pst[BLACK.ordinal()][s.index()] = -BLOCKING_BONUS;
+            }
+        }
+    }
+
+    /** The default bonus (to black) for a black piece next to an edge. */
+    private static final int BLOCKING_BONUS = 4;
+
+    /** The weight of each black piece. */
+    private int _black = 20;
+    /** The weight of each white piece other than the king. */
+    private int _white = 40;
+    /** The weight of each open route from the king to an edge. */
+    private int _route = 60;
+    /** The weight of each square between the king and an edge. */
+    private int _distance = 10;
+    /** The weight of each black piece next to the king. */
+    private int _adjacent = 15;
+    /** _pst[p][s] is the value of the piece with ordinal p on the square
+     *  with index s (all 0 for EMPTY). */
+    private final int[][] _pst = new int[Piece.values().length][NUM_SQUARES];
+}
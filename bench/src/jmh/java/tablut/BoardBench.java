@@ -0,0 +1,126 @@
+package tablut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static tablut.Board.MAX_MOVES;
+import static tablut.Square.SQUARE_LIST;
+
+/** Benchmarks of the Board operations used by searches, over the
+ *  positions in Bench.
+ *  @author Ryan Chen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBench {
+
+    /** The name of the position benchmarked. */
+    @Param({ "opening", "early", "middle", "crowded", "late" })
+    public String position;
+
+    /** Set up the position and the moves and squares used in it. */
+    @Setup
+    public void setUp() {
+        _board = Bench.position(position);
+        _numMoves = _board.legalMoves(_board.turn(), _moves);
+        _legal = new Move[_numMoves];
+        for (int i = 0; i < _numMoves; i += 1) {
+            _legal[i] = Move.mv(_moves[i]);
+        }
+        ArrayList<Square> probes = new ArrayList<>();
+        String before = _board.encodedBoard();
+        for (Square sq : SQUARE_LIST) {
+            Board copy = new Board(_board);
+            copy.checkCapture(sq);
+            if (copy.get(sq) != Piece.EMPTY
+                && copy.encodedBoard().equals(before)) {
+                probes.add(sq);
+            }
+        }
+        _probes = probes.toArray(new Square[0]);
+    }
+
+    /** Generate the legal moves into an array, as searches do. */
+    @Benchmark
+    public int legalMoves() {
+        return _board.legalMoves(_board.turn(), _moves);
+    }
+
+    /** Generate the legal moves as a List. */
+    @Benchmark
+    public List<Move> legalMovesList() {
+        return _board.legalMoves(_board.turn());
+    }
+
+    /** Make and undo one legal move, cycling through all of them. */
+    @Benchmark
+    public long makeMoveUndo() {
+        Move mv = _legal[_nextMove];
+        _nextMove = _nextMove + 1 == _numMoves ? 0 : _nextMove + 1;
+        _board.makeMove(mv);
+        long hash = _board.hash();
+        _board.undo();
+        return hash;
+    }
+
+    /** Look for captures by one piece, cycling through the occupied
+     *  squares.  Only squares from which nothing would be captured are
+     *  used, so that the board does not change; this is the usual case
+     *  after a move. */
+    @Benchmark
+    public Board checkCapture() {
+        Square sq = _probes[_nextProbe];
+        _nextProbe = _nextProbe + 1 == _probes.length ? 0 : _nextProbe + 1;
+        _board.checkCapture(sq);
+        return _board;
+    }
+
+    /** Encode the position as a String. */
+    @Benchmark
+    public String encodedBoard() {
+        return _board.encodedBoard();
+    }
+
+    /** Copy the board, including its undo history. */
+    @Benchmark
+    public Board copy() {
+        return new Board(_board);
+    }
+
+    /** Take a snapshot of the board, sharing its undo history. */
+    @Benchmark
+    public Board snapshot() {
+        return _board.snapshot();
+    }
+
+    /** The board being benchmarked. */
+    private Board _board;
+    /** Buffer for generated moves. */
+    private final int[] _moves = new int[MAX_MOVES];
+    /** The legal moves in _board, and their number. */
+    private Move[] _legal;
+    /** The number of legal moves in _board. */
+    private int _numMoves;
+    /** The occupied squares of _board whose pieces capture nothing. */
+    private Square[] _probes;
+    /** The indices in _legal and _probes of the next move and square to
+     *  use. */
+    private int _nextMove, _nextProbe;
+}
@@ -0,0 +1,68 @@
+package tablut;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of AI searches to fixed depths over the positions in
+ *  Bench, with the default search options.  Each search starts
+ *  with an empty transposition table and a new AI, so that every one
+ *  does the same work.
+ *  @author Ryan Chen
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBench {
+
+    /** The name of the position searched. */
+    @Param({ "opening", "early", "middle", "crowded", "late" })
+    public String position;
+
+    /** The depth of each search. */
+    @Param({ "2", "3", "4" })
+    public int depth;
+
+    /** Set up the position. */
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        _board = Bench.position(position);
+    }
+
+    /** Give the next search a fresh AI and transposition table. */
+    @Setup(Level.Invocation)
+    public void setUpSearch() {
+        _ai = new AI(_board.turn(), null);
+        _table.clear();
+    }
+
+    /** Search _board to the chosen depth. */
+    @Benchmark
+    public Move findMove() {
+        return _ai.findMove(_board.snapshot(), depth, _table, _options);
+    }
+
+    /** The position being searched. */
+    private Board _board;
+    /** The AI that performs the next search. */
+    private AI _ai;
+    /** The transposition table, kept small so that clearing it between
+     *  searches is cheap. */
+    private final TranspositionTable _table = new TranspositionTable(1);
+    /** The search options. */
+    private final SearchOptions _options = new SearchOptions();
+}